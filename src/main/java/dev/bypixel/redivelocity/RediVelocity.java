@@ -22,20 +22,26 @@ import com.velocitypowered.api.event.proxy.ProxyShutdownEvent;
 import com.velocitypowered.api.plugin.Plugin;
 import com.velocitypowered.api.plugin.PluginContainer;
 import com.velocitypowered.api.proxy.ProxyServer;
-import com.velocitypowered.api.scheduler.ScheduledTask;
 import dev.bypixel.redivelocity.commands.RediVelocityCommand;
 import dev.bypixel.redivelocity.config.Config;
 import dev.bypixel.redivelocity.config.ConfigLoader;
 import dev.bypixel.redivelocity.jedisWrapper.RedisController;
 import dev.bypixel.redivelocity.jedisWrapper.RedisManager;
+import dev.bypixel.redivelocity.jedisWrapper.RedisScript;
 import dev.bypixel.redivelocity.jedisWrapper.UpdateManager;
 import dev.bypixel.redivelocity.listeners.DisconnectListener;
+import dev.bypixel.redivelocity.listeners.LoginAdmissionListener;
 import dev.bypixel.redivelocity.listeners.PostLoginListener;
 import dev.bypixel.redivelocity.listeners.ProxyPingListener;
 import dev.bypixel.redivelocity.listeners.ServerSwitchListener;
 import dev.bypixel.redivelocity.pubsub.MessageListener;
 import dev.bypixel.redivelocity.services.HeartbeatService;
+import dev.bypixel.redivelocity.services.HousekeepingShards;
+import dev.bypixel.redivelocity.services.LeaderLeaseService;
 import dev.bypixel.redivelocity.services.PlayerCalcService;
+import dev.bypixel.redivelocity.services.PlayerExpiryService;
+import dev.bypixel.redivelocity.services.RedisResyncService;
+import dev.bypixel.redivelocity.services.ServerSwitchCoalescer;
 import dev.bypixel.redivelocity.utils.CloudUtils;
 import dev.bypixel.redivelocity.utils.ProxyIdGenerator;
 import dev.jorel.commandapi.CommandAPI;
@@ -46,10 +52,8 @@ import jakarta.inject.Singleton;
 import lombok.Getter;
 import lombok.Setter;
 
-import java.security.SecureRandom;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 
 @Singleton
 @Plugin(id = "redivelocity", name = "RediVelocity", version = "1.1.1", description = "A fast, modern and clean alternative to RedisBungee on Velocity.", authors = {"byPixelTV"}, url = "https://github.com/byPixelTV/RediVelocity")
@@ -58,7 +62,6 @@ public class RediVelocity {
     private static final String RV_PLAYERS_NAME = "rv-players-name";
     private static final String RV_GLOBAL_PLAYERCOUNT = "rv-global-playercount";
     private static final String RV_PROXIES = "rv-proxies";
-    private static final String RV_PROXY_VOTES = "rv-proxy-votes";
     private static final String RV_PROXY_LEADER = "rv-proxy-leader";
 
     public final ProxyServer proxy;
@@ -74,9 +77,12 @@ public class RediVelocity {
     private String jsonFormat;
     @Getter
     private String proxyId;
+    @Getter
+    private volatile boolean initializing = true;
 
-    private ScheduledTask globalPlayerCountTask;
-    private ScheduledTask leaderElectionTask;
+    private LeaderLeaseService leaderLease;
+    private HeartbeatService heartbeatService;
+    private RedisManager redisManager;
 
     @Inject
     public RediVelocity(
@@ -113,101 +119,19 @@ public class RediVelocity {
         this.jsonFormat = String.valueOf(config.isJsonFormat());
     }
 
-    public void calculateGlobalPlayers() {
-        globalPlayerCountTask = this.proxy.getScheduler().buildTask(this, () -> {
-            List<Integer> proxyPlayersMap = redisController.getAllHashValues("rv-proxy-players").stream()
-                    .map(Integer::parseInt)
-                    .toList();
-            int sum = proxyPlayersMap.stream().mapToInt(Integer::intValue).sum();
-            redisController.setString(RV_GLOBAL_PLAYERCOUNT, String.valueOf(sum));
-        }).repeat(5, TimeUnit.SECONDS).schedule();
-    }
-
-    public void startLeaderElection() {
-        final int[] electionCounter = {0};
-
-        leaderElectionTask = this.proxy.getScheduler().buildTask(this, () -> {
-            Set<String> activeProxies = redisController.getAllHashFields(RV_PROXIES);
-            if (activeProxies.isEmpty()) {
-                return;
-            }
-
-            String currentLeader = redisController.getString(RV_PROXY_LEADER);
-            boolean forceNewElection = (electionCounter[0]++ % 20 == 0);
-            boolean needNewLeader = currentLeader == null || !activeProxies.contains(currentLeader) || forceNewElection;
-
-            if (needNewLeader) {
-                String reason = currentLeader == null ? "No leader found" :
-                        (!activeProxies.contains(currentLeader) ? "Leader " + currentLeader + " is not active" :
-                                "Scheduled forced election");
-                if (configLoader.getConfig().isDebugMode()) {
-                    rediVelocityLogger.sendLogs("Selecting new leader: " + reason);
-                }
-
-                redisController.deleteHash(RV_PROXY_VOTES);
-
-                for (String voter : activeProxies) {
-                    List<String> candidates = new ArrayList<>(activeProxies);
-                    if (candidates.size() > 1) {
-                        candidates.remove(voter);
-                    }
-                    String candidate = candidates.get(new SecureRandom().nextInt(candidates.size()));
-                    redisController.setHashField(RV_PROXY_VOTES, voter, candidate);
-                }
-
-                Map<String, String> allVotes = redisController.getHashValuesAsPair(RV_PROXY_VOTES);
-                Map<String, Long> voteCount = allVotes.values().stream()
-                        .collect(Collectors.groupingBy(proxy -> proxy, Collectors.counting()));
-                
-                if (voteCount.isEmpty()) {
-                    List<String> proxyList = new ArrayList<>(activeProxies);
-                    String newLeader = proxyList.get(new SecureRandom().nextInt(proxyList.size()));
-                    redisController.setString(RV_PROXY_LEADER, newLeader);
-
-                    if (newLeader.equals(proxyId)) {
-                        if (configLoader.getConfig().isDebugMode()) {
-                            rediVelocityLogger.sendLogs("This proxy (" + proxyId + ") is now the leader (random selection).");
-                        }
-                    }
-                    return;
-                }
-
-                Map<Long, List<String>> groupedByVotes = new HashMap<>();
-                voteCount.forEach((proxy, count) ->
-                        groupedByVotes.computeIfAbsent(count, votes -> new ArrayList<>()).add(proxy)
-                );
-
-                Long maxVotes = groupedByVotes.keySet().stream()
-                        .max(Long::compare)
-                        .orElse(0L);
-
-                List<String> topCandidates = groupedByVotes.get(maxVotes);
-
-                String newLeader = topCandidates.get(new SecureRandom().nextInt(topCandidates.size()));
-                redisController.setString(RV_PROXY_LEADER, newLeader);
-
-                if (newLeader.equals(proxyId)) {
-                    if (configLoader.getConfig().isDebugMode()) {
-                        rediVelocityLogger.sendLogs("This proxy (" + proxyId + ") is now the leader with " + maxVotes + " votes.");
-                    }
-                }
-            }
-        }).repeat(15, TimeUnit.SECONDS).schedule();
-    }
-
     public void stop() {
-        if (Objects.nonNull(globalPlayerCountTask)) {
-            globalPlayerCountTask.cancel();
+        if (Objects.nonNull(leaderLease)) {
+            leaderLease.stop();
         }
-
-        if (Objects.nonNull(leaderElectionTask)) {
-            leaderElectionTask.cancel();
+        if (Objects.nonNull(heartbeatService)) {
+            heartbeatService.stop();
         }
     }
 
     @Subscribe
     public void onProxyInitialization(ProxyInitializeEvent event) {
-        redisController.setString("rv-init-process", "true");
+        redisController.startHealthProbe();
+        redisController.validateKeySchema();
 
         configLoader.load();
         Config config = configLoader.getConfig();
@@ -218,124 +142,142 @@ public class RediVelocity {
                 proxyIdGenerator.generate();
 
         if (Objects.equals(proxyId, "Proxy-1")) {
-            redisController.deleteHash("rv-proxy-players");
-            redisController.deleteHash("rv-players-proxy");
-            redisController.deleteHash("rv-proxy-heartbeat");
-            redisController.deleteHash("rv-players-server");
-            redisController.deleteHash("rv-proxies");
-            redisController.deleteString("rv-global-playercount");
-        }
-
-        proxy.getScheduler().buildTask(this, () -> {
-            CommandAPI.onEnable();
-
-            Optional<PluginContainer> pluginContainer = proxy.getPluginManager().getPlugin("redivelocity");
-
-            if (!redisController.exists(RV_PROXIES)) {
-                redisController.deleteHash(RV_PROXIES);
+            // a failure must not keep the startup task below from being scheduled, it ends the initializing phase
+            try {
                 redisController.deleteHash("rv-proxy-players");
-                redisController.deleteHash(RV_PLAYERS_NAME);
-                redisController.deleteHash(RV_GLOBAL_PLAYERCOUNT);
-            }
-
-            redisController.setHashField(RV_PROXIES, proxyId, proxyId);
-            redisController.setHashField("rv-proxy-players", proxyId, "0");
-            if (redisController.getString(RV_GLOBAL_PLAYERCOUNT) == null) {
-                redisController.setString(RV_GLOBAL_PLAYERCOUNT, "0");
+                redisController.deleteHash("rv-players-proxy");
+                redisController.deleteHash(RedisController.RV_PROXY_HEARTBEAT);
+                redisController.deleteHash("rv-players-server");
+                redisController.deleteHash(RedisController.RV_SERVER_PLAYERS);
+                redisController.deleteHash(RedisController.RV_PROXY_SERVER_PLAYERS);
+                redisController.deleteHash("rv-proxies");
+                redisController.deleteString("rv-global-playercount");
+            } catch (Exception e) {
+                rediVelocityLogger.sendErrorLogs("Error while resetting the network state in Redis " + e.getMessage());
             }
-            rediVelocityLogger.sendLogs("Creating new Proxy with ID: " + proxyId);
-
-            RedisManager redisManager = new RedisManager(rediVelocityLogger, redisController.getJedisPool());
+        }
 
-            boolean isBeta = false;
-            if (pluginContainer.isPresent()) {
-                String version = pluginContainer.get().getDescription().getVersion().toString();
-                if (version.contains("-")) {
-                    rediVelocityLogger.sendConsoleMessage("<yellow>This is a <color:#ff0000><b>BETA build,</b></color> things may not work as expected, please report any bugs on <aqua>GitHub</aqua></yellow>");
-                    rediVelocityLogger.sendConsoleMessage("<aqua><b>https://github.com/byPixelTV/RediVelocity/issues</b></aqua>");
-                    isBeta = true;
+        proxy.getScheduler().buildTask(this, () -> {
+            try {
+                CommandAPI.onEnable();
+
+                Optional<PluginContainer> pluginContainer = proxy.getPluginManager().getPlugin("redivelocity");
+
+                if (!redisController.exists(RV_PROXIES)) {
+                    redisController.deleteHash(RV_PROXIES);
+                    redisController.deleteHash("rv-proxy-players");
+                    redisController.deleteHash(RV_PLAYERS_NAME);
+                    redisController.deleteHash(RedisController.RV_PLAYERS_NAME_INDEX);
+                    redisController.deleteHash(RV_GLOBAL_PLAYERCOUNT);
+                    redisController.deleteHash(RedisController.RV_SERVER_PLAYERS);
+                    redisController.deleteHash(RedisController.RV_PROXY_SERVER_PLAYERS);
+                } else if (!redisController.exists(RedisController.RV_PLAYERS_NAME_INDEX)) {
+                    redisController.rebuildPlayerIndexes();
                 }
-            } else {
-                rediVelocityLogger.sendErrorLogs("RediVelocity plugin not found (soo, this is really bad, please report this issue on GitHub)");
-            }
 
-            if (!isBeta) {
-                updateManager.checkForUpdate();
-            } else {
-                rediVelocityLogger.sendConsoleMessage("<yellow>The <aqua>update checker</aqua> is disabled because you are using a <aqua>beta build</aqua> of <aqua>RediVelocity!</aqua></yellow>");
-            }
+                redisController.setHashField(RV_PROXIES, proxyId, proxyId);
+                redisController.addToSortedSet(RedisController.RV_PROXY_HEARTBEAT, System.currentTimeMillis(), proxyId);
+                redisController.setHashField("rv-proxy-players", proxyId, "0");
+                if (redisController.getString(RV_GLOBAL_PLAYERCOUNT) == null) {
+                    redisController.setString(RV_GLOBAL_PLAYERCOUNT, "0");
+                }
+                rediVelocityLogger.sendLogs("Creating new Proxy with ID: " + proxyId);
 
-            proxy.getEventManager().register(this, new ServerSwitchListener(this, config, redisController, rediVelocityLogger));
-            proxy.getEventManager().register(this, new PostLoginListener(this, config, redisController, rediVelocityLogger, proxy));
-            proxy.getEventManager().register(this, new DisconnectListener(config, redisController, this, rediVelocityLogger, proxy));
-            // proxy.getEventManager().register(this, new ResourcePackListeners(proxy, config));
+                redisManager = new RedisManager(rediVelocityLogger, redisController.getClient(), redisController.getExecutor());
 
-            if (config.isPlayerCountSync()) {
-                proxy.getEventManager().register(this, new ProxyPingListener(redisController));
-            }
+                boolean isBeta = false;
+                if (pluginContainer.isPresent()) {
+                    String version = pluginContainer.get().getDescription().getVersion().toString();
+                    if (version.contains("-")) {
+                        rediVelocityLogger.sendConsoleMessage("<yellow>This is a <color:#ff0000><b>BETA build,</b></color> things may not work as expected, please report any bugs on <aqua>GitHub</aqua></yellow>");
+                        rediVelocityLogger.sendConsoleMessage("<aqua><b>https://github.com/byPixelTV/RediVelocity/issues</b></aqua>");
+                        isBeta = true;
+                    }
+                } else {
+                    rediVelocityLogger.sendErrorLogs("RediVelocity plugin not found (soo, this is really bad, please report this issue on GitHub)");
+                }
 
-            new MessageListener(redisManager, this.proxy);
+                if (!isBeta) {
+                    updateManager.checkForUpdate();
+                } else {
+                    rediVelocityLogger.sendConsoleMessage("<yellow>The <aqua>update checker</aqua> is disabled because you are using a <aqua>beta build</aqua> of <aqua>RediVelocity!</aqua></yellow>");
+                }
 
-            rediVelocityCommandProvider.get().register();
+                if (config.getLoginAdmission().isEnabled()) {
+                    proxy.getEventManager().register(this, new LoginAdmissionListener(this, config, redisController, rediVelocityLogger, proxy));
+                }
+                ServerSwitchCoalescer serverSwitchCoalescer = new ServerSwitchCoalescer(redisController, rediVelocityLogger, this, proxy, config);
+                proxy.getEventManager().register(this, new ServerSwitchListener(this, config, redisController, rediVelocityLogger, serverSwitchCoalescer));
+                proxy.getEventManager().register(this, new PostLoginListener(this, config, redisController, rediVelocityLogger));
+                proxy.getEventManager().register(this, new DisconnectListener(config, redisController, this, rediVelocityLogger, serverSwitchCoalescer));
+                // proxy.getEventManager().register(this, new ResourcePackListeners(this, proxy, config));
+
+                if (config.isPlayerCountSync()) {
+                    proxy.getEventManager().register(this, new ProxyPingListener(redisController));
+                }
 
-            new PlayerCalcService(redisController, proxyId, rediVelocityLogger, this, proxy).startCalc();
-            new HeartbeatService(redisController, proxyId, rediVelocityLogger, this, proxy, config.isDebugMode()).startHeartbeatService();
+                new MessageListener(redisManager, this.proxy);
 
-            calculateGlobalPlayers();
-            startLeaderElection();
+                rediVelocityCommandProvider.get().register();
 
-            if (config.getJoingate().getAllowBedrockClients()) {
-                if (!config.getJoingate().getFloodgateHook()) {
-                    rediVelocityLogger.sendErrorLogs("You currently allow Bedrock clients to connect, but the Floodgate hook is disabled, please enable the Floodgate hook in the config");
-                } else {
-                    // check if geyser and floodgate are installed
-                    if (proxy.getPluginManager().getPlugin("floodgate").isEmpty() && proxy.getPluginManager().getPlugin("geyser").isEmpty()) {
-                        rediVelocityLogger.sendErrorLogs("You currently allow Bedrock clients to connect, but Floodgate and GeyserMC are <color:#ff0000>NOT</color> installed, you should fix this issue.");
+                leaderLease = new LeaderLeaseService(redisController, proxyId, rediVelocityLogger, this, proxy, config.getLeaderElection().getLeaseMillis(), config.isDebugMode());
+                leaderLease.start();
+                HousekeepingShards housekeeping = new HousekeepingShards(proxyId);
+                new PlayerCalcService(redisController, leaderLease, housekeeping, rediVelocityLogger, this, proxy, config.getHeartbeat().getTimeoutMillis(), config.isDebugMode()).startCalc();
+                if (config.getRedis().getPlayerExpiry().isEnabled()) {
+                    new PlayerExpiryService(redisController, proxyId, rediVelocityLogger, this, proxy, config.getRedis().getPlayerExpiry().getTtlMillis(),
+                            config.getRedis().getPlayerExpiry().getRenewBatchSize(), config.isDebugMode()).start();
+                }
+                heartbeatService = new HeartbeatService(redisController, housekeeping, proxyId, rediVelocityLogger, this, proxy, config.getHeartbeat().getIntervalMillis(), config.getHeartbeat().getTimeoutMillis(), config.isDebugMode());
+                heartbeatService.startHeartbeatService();
+                redisController.addRecoveryListener(new RedisResyncService(redisController, proxyId, config.getRedis().getChannel(), rediVelocityLogger, proxy)::resync);
+
+                if (config.getJoingate().getAllowBedrockClients()) {
+                    if (!config.getJoingate().getFloodgateHook()) {
+                        rediVelocityLogger.sendErrorLogs("You currently allow Bedrock clients to connect, but the Floodgate hook is disabled, please enable the Floodgate hook in the config");
+                    } else {
+                        // check if geyser and floodgate are installed
+                        if (proxy.getPluginManager().getPlugin("floodgate").isEmpty() && proxy.getPluginManager().getPlugin("geyser").isEmpty()) {
+                            rediVelocityLogger.sendErrorLogs("You currently allow Bedrock clients to connect, but Floodgate and GeyserMC are <color:#ff0000>NOT</color> installed, you should fix this issue.");
+                        }
                     }
                 }
+            } catch (Exception e) {
+                rediVelocityLogger.sendErrorLogs("Error while initializing RediVelocity " + e.getMessage());
+            } finally {
+                // the listeners wait for this, a failed start must not hold back every player event
+                initializing = false;
             }
         }).delay(2, TimeUnit.SECONDS).schedule();
-
-        redisController.deleteString("rv-init-process");
     }
 
     @Subscribe
     public void onProxyShutdown(ProxyShutdownEvent event) {
         stop();
 
-        redisController.deleteHashField(RV_PROXY_VOTES, proxyId);
-
-        String currentLeader = redisController.getString(RV_PROXY_LEADER);
-        if (proxyId.equals(currentLeader)) {
-            Set<String> activeProxies = redisController.getAllHashFields(RV_PROXIES);
-            activeProxies.remove(proxyId);
-
-            if (!activeProxies.isEmpty()) {
-                List<String> otherProxies = new ArrayList<>(activeProxies);
-                String newLeader = otherProxies.get(new SecureRandom().nextInt(otherProxies.size()));
-                redisController.setString(RV_PROXY_LEADER, newLeader);
-                if (configLoader.getConfig().isDebugMode()) {
-                    rediVelocityLogger.sendLogs("New proxy leader selected (this proxy (the current leader) died): " + newLeader);
+        try {
+            Object result = redisController.runScript(
+                    RedisScript.PROXY_SHUTDOWN,
+                    List.of(RV_PROXIES, "rv-proxy-players", RedisController.RV_PROXY_HEARTBEAT, "rv-proxies-counter", RV_GLOBAL_PLAYERCOUNT, RV_PROXY_LEADER),
+                    List.of(proxyId)
+            );
+            if (result instanceof Long remainingProxies) {
+                // the player hashes are sharded, so they are cleared outside the script
+                redisController.deleteHash(RedisController.getProxyMembersKey(proxyId));
+                // only the last proxy clears the player hashes, another one still has players in them
+                if (remainingProxies == 0) {
+                    redisController.deleteHash(RV_PLAYERS_NAME);
+                    redisController.deleteHash(RedisController.RV_PLAYERS_NAME_INDEX);
                 }
-            } else {
-                redisController.deleteString(RV_PROXY_LEADER);
             }
+        } catch (Exception e) {
+            // the other proxies remove this one once its heartbeat times out
+            rediVelocityLogger.sendErrorLogs("Error while unregistering this proxy from Redis " + e.getMessage());
+        } finally {
+            if (Objects.nonNull(redisManager)) {
+                redisManager.close();
+            }
+            redisController.shutdown();
         }
-
-        redisController.deleteHashField(RV_PROXIES, proxyId);
-        redisController.deleteHashField("rv-proxy-players", proxyId);
-
-        if (redisController.getAllHashFields(RV_PROXIES).isEmpty() || redisController.getAllHashFields(RV_PROXIES).size() == 1) {
-            redisController.deleteHash(RV_PLAYERS_NAME);
-            redisController.deleteHash("rv-proxy-players");
-            redisController.deleteHash("rv-proxy-heartbeat");
-            redisController.deleteString("rv-proxies-counter");
-        }
-
-        if (!redisController.exists(RV_PROXIES)) {
-            redisController.deleteHash(RV_GLOBAL_PLAYERCOUNT);
-            redisController.deleteHash(RV_PLAYERS_NAME);
-        }
-        redisController.shutdown();
     }
 }
\ No newline at end of file
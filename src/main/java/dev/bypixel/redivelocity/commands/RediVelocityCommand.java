@@ -16,11 +16,17 @@
 
 package dev.bypixel.redivelocity.commands;
 
+import com.velocitypowered.api.command.CommandSource;
+import com.velocitypowered.api.proxy.Player;
 import com.velocitypowered.api.proxy.ProxyServer;
-import com.velocitypowered.api.proxy.server.ServerPing;
 import dev.bypixel.redivelocity.RediVelocityLogger;
 import dev.bypixel.redivelocity.config.ConfigLoader;
+import dev.bypixel.redivelocity.jedisWrapper.ReadConsistency;
+import dev.bypixel.redivelocity.jedisWrapper.RedisCacheStats;
+import dev.bypixel.redivelocity.jedisWrapper.RedisExecutorStats;
 import dev.bypixel.redivelocity.jedisWrapper.RedisController;
+import dev.bypixel.redivelocity.jedisWrapper.RedisPoolStats;
+import dev.bypixel.redivelocity.services.HousekeepingShards;
 import dev.jorel.commandapi.CommandAPICommand;
 import dev.jorel.commandapi.arguments.ArgumentSuggestions;
 import dev.jorel.commandapi.arguments.StringArgument;
@@ -29,11 +35,13 @@ import jakarta.inject.Singleton;
 import net.kyori.adventure.text.minimessage.MiniMessage;
 
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Singleton
 public class RediVelocityCommand {
@@ -42,12 +50,14 @@ public class RediVelocityCommand {
     private final MiniMessage miniMessage;
     private final RedisController redisController;
     private final ProxyServer proxy;
+    private final long heartbeatTimeoutMillis;
 
     @Inject
     public RediVelocityCommand(RedisController redisController, ProxyServer proxy, RediVelocityLogger rediVelocityLogger) {
         ConfigLoader configLoader = new ConfigLoader(rediVelocityLogger);
         configLoader.load();
         this.prefix = configLoader.getConfig().getMessages().getPrefix();
+        this.heartbeatTimeoutMillis = configLoader.getConfig().getHeartbeat().getTimeoutMillis();
         this.miniMessage = MiniMessage.miniMessage();
         this.redisController = redisController;
         this.proxy = proxy;
@@ -58,10 +68,30 @@ public class RediVelocityCommand {
                 .withAliases("rv", "rediv")
                 .withSubcommands(
                         createPlayerSubcommands(),
-                        createProxySubcommands()
+                        createProxySubcommands(),
+                        createRedisSubcommands()
                 ).register();
     }
 
+    private ArgumentSuggestions<CommandSource> playerNameSuggestions() {
+        return ArgumentSuggestions.stringCollection(input -> redisController.isAvailable()
+                ? redisController.getAllHashValues("rv-players-name", ReadConsistency.REPLICA)
+                : proxy.getAllPlayers().stream().map(Player::getUsername).toList());
+    }
+
+    private ArgumentSuggestions<CommandSource> proxySuggestions() {
+        return ArgumentSuggestions.stringCollection(input -> redisController.isAvailable()
+                ? redisController.getAllHashFields("rv-proxies", ReadConsistency.REPLICA)
+                : List.of());
+    }
+
+    /**
+     * Tells the sender that Redis is down and the answer only covers this proxy.
+     */
+    private void sendDegradedNotice(CommandSource sender) {
+        sender.sendMessage(miniMessage.deserialize(prefix + " <yellow>Redis is currently unavailable, only data of this proxy is shown.</yellow>"));
+    }
+
     private CommandAPICommand createPlayerSubcommands() {
         return new CommandAPICommand("player")
                 .withSubcommands(
@@ -76,16 +106,25 @@ public class RediVelocityCommand {
 
     private CommandAPICommand createPlayerProxyCommand() {
         return new CommandAPICommand("proxy")
-                .withArguments(new StringArgument("player").replaceSuggestions(ArgumentSuggestions.stringCollection(input -> redisController.getAllHashValues("rv-players-name"))))
+                .withArguments(new StringArgument("player").replaceSuggestions(playerNameSuggestions()))
                 .withPermission("redivelocity.admin.player.proxy")
                 .executes((sender, args) -> {
                     String playerName = (String) args.get(0);
-                    String playerKey = redisController.getHashKeyByValue("rv-players-name", playerName);
+                    if (!redisController.isAvailable()) {
+                        sendDegradedNotice(sender);
+                        if (proxy.getPlayer(playerName).isPresent()) {
+                            sender.sendMessage(miniMessage.deserialize(prefix + " <gray>The player <aqua>" + playerName + "</aqua> is connected to this proxy.</gray>"));
+                        } else {
+                            sender.sendMessage(miniMessage.deserialize(prefix + " <gray>The player <aqua>" + playerName + "</aqua> is not connected to this proxy.</gray>"));
+                        }
+                        return;
+                    }
+                    String playerKey = redisController.getPlayerUuidByName(playerName, ReadConsistency.REPLICA);
                     if (playerKey == null) {
                         sender.sendMessage(miniMessage.deserialize(prefix + " <gray>The player <aqua>" + playerName + "</aqua> does not exist.</gray>"));
                         return;
                     }
-                    String playerProxy = redisController.getHashField("rv-players-proxy", playerKey);
+                    String playerProxy = redisController.getHashField("rv-players-proxy", playerKey, ReadConsistency.REPLICA);
                     if (playerProxy != null) {
                         sender.sendMessage(miniMessage.deserialize(prefix + " <gray>The player <aqua>" + playerName + "</aqua> is connected to proxy: <aqua>" + playerProxy + "</aqua></gray>"));
                     } else {
@@ -96,18 +135,27 @@ public class RediVelocityCommand {
 
     private CommandAPICommand createPlayerLastSeenCommand() {
         return new CommandAPICommand("lastseen")
-                .withArguments(new StringArgument("player").replaceSuggestions(ArgumentSuggestions.stringCollection(input -> redisController.getAllHashValues("rv-players-name"))))
+                .withArguments(new StringArgument("player").replaceSuggestions(playerNameSuggestions()))
                 .withPermission("redivelocity.admin.player.lastseen")
                 .executes((sender, args) -> {
                     String playerName = (String) args.get(0);
-                    String playerKey = redisController.getHashKeyByValue("rv-players-name", playerName);
+                    if (!redisController.isAvailable()) {
+                        sendDegradedNotice(sender);
+                        if (proxy.getPlayer(playerName).isPresent()) {
+                            sender.sendMessage(miniMessage.deserialize(prefix + " <gray>The player <aqua>" + playerName + "</aqua> is currently <green>online</green>.</gray>"));
+                        } else {
+                            sender.sendMessage(miniMessage.deserialize(prefix + " <gray>The player <aqua>" + playerName + "</aqua> is not connected to this proxy.</gray>"));
+                        }
+                        return;
+                    }
+                    String playerKey = redisController.getPlayerUuidByName(playerName, ReadConsistency.REPLICA);
                     if (playerKey == null) {
                         sender.sendMessage(miniMessage.deserialize(prefix + " <gray>The player <aqua>" + playerName + "</aqua> does not exist.</gray>"));
                         return;
                     }
-                    String lastSeen = redisController.getHashField("rv-players-lastseen", playerKey);
-                    assert playerName != null;
-                    boolean isOnline = redisController.getHashField("rv-players-name", playerKey).contains(playerName);
+                    String lastSeen = redisController.getHashField("rv-players-lastseen", playerKey, ReadConsistency.REPLICA);
+                    // the index is keyed by the lower-cased name, the player's proxy entry tells whether they are online
+                    boolean isOnline = redisController.getHashField("rv-players-proxy", playerKey, ReadConsistency.REPLICA) != null;
                     if (!isOnline) {
                         if (lastSeen != null) {
                             sender.sendMessage(miniMessage.deserialize(prefix + " <gray>The player <aqua>" + playerName + "</aqua> was last seen <aqua>" + lastSeen + "</aqua>.</gray>"));
@@ -122,16 +170,27 @@ public class RediVelocityCommand {
 
     private CommandAPICommand createPlayerIpCommand() {
         return new CommandAPICommand("ip")
-                .withArguments(new StringArgument("player").replaceSuggestions(ArgumentSuggestions.stringCollection(input -> redisController.getAllHashValues("rv-players-name"))))
+                .withArguments(new StringArgument("player").replaceSuggestions(playerNameSuggestions()))
                 .withPermission("redivelocity.admin.player.ip")
                 .executes((sender, args) -> {
                     String playerName = (String) args.get(0);
-                    String playerKey = redisController.getHashKeyByValue("rv-players-name", playerName);
+                    if (!redisController.isAvailable()) {
+                        sendDegradedNotice(sender);
+                        Optional<Player> player = proxy.getPlayer(playerName);
+                        if (player.isPresent()) {
+                            String playerIp = player.get().getRemoteAddress().getAddress().getHostAddress();
+                            sender.sendMessage(miniMessage.deserialize(prefix + " <gray>The player <aqua>" + playerName + "</aqua> is connected with IP: <aqua><hover:show_text:'<aqua>Click to copy</aqua>'><click:copy_to_clipboard:" + playerIp + ">" + playerIp + "</click></hover></aqua></gray>"));
+                        } else {
+                            sender.sendMessage(miniMessage.deserialize(prefix + " <gray>The player <aqua>" + playerName + "</aqua> is not connected to this proxy.</gray>"));
+                        }
+                        return;
+                    }
+                    String playerKey = redisController.getPlayerUuidByName(playerName, ReadConsistency.REPLICA);
                     if (playerKey == null) {
                         sender.sendMessage(miniMessage.deserialize(prefix + " <gray>The player <aqua>" + playerName + "</aqua> does not exist.</gray>"));
                         return;
                     }
-                    String playerIp = redisController.getHashField("rv-players-ip", playerKey);
+                    String playerIp = redisController.getHashField("rv-players-ip", playerKey, ReadConsistency.REPLICA);
                     if (playerIp != null) {
                         sender.sendMessage(miniMessage.deserialize(prefix + " <gray>The player <aqua>" + playerName + "</aqua> is connected with IP: <aqua><hover:show_text:'<aqua>Click to copy</aqua>'><click:copy_to_clipboard:" + playerIp + ">" + playerIp + "</click></hover></aqua></gray>"));
                     } else {
@@ -142,11 +201,17 @@ public class RediVelocityCommand {
 
     private CommandAPICommand createPlayerUuidCommand() {
         return new CommandAPICommand("uuid")
-                .withArguments(new StringArgument("player").replaceSuggestions(ArgumentSuggestions.stringCollection(input -> redisController.getAllHashValues("rv-players-name"))))
+                .withArguments(new StringArgument("player").replaceSuggestions(playerNameSuggestions()))
                 .withPermission("redivelocity.admin.player.uuid")
                 .executes((sender, args) -> {
                     String playerName = (String) args.get(0);
-                    String playerUuid = redisController.getHashKeyByValue("rv-players-name", playerName);
+                    String playerUuid;
+                    if (redisController.isAvailable()) {
+                        playerUuid = redisController.getPlayerUuidByName(playerName, ReadConsistency.REPLICA);
+                    } else {
+                        sendDegradedNotice(sender);
+                        playerUuid = proxy.getPlayer(playerName).map(player -> player.getUniqueId().toString()).orElse(null);
+                    }
                     if (playerUuid != null) {
                         sender.sendMessage(miniMessage.deserialize(prefix + " <gray>The player <aqua>" + playerName + "</aqua> has the UUID: <aqua><hover:show_text:'<aqua>Click to copy</aqua>'><click:copy_to_clipboard:" + playerUuid + ">" + playerUuid + "</click></hover></aqua></gray>"));
                     } else {
@@ -157,16 +222,28 @@ public class RediVelocityCommand {
 
     private CommandAPICommand createPlayerServerCommand() {
         return new CommandAPICommand("server")
-                .withArguments(new StringArgument("player").replaceSuggestions(ArgumentSuggestions.stringCollection(input -> redisController.getAllHashValues("rv-players-name"))))
+                .withArguments(new StringArgument("player").replaceSuggestions(playerNameSuggestions()))
                 .withPermission("redivelocity.admin.player.uuid")
                 .executes((sender, args) -> {
                     String playerName = (String) args.get(0);
-                    String playerKey = redisController.getHashKeyByValue("rv-players-name", playerName);
+                    if (!redisController.isAvailable()) {
+                        sendDegradedNotice(sender);
+                        Optional<String> localServer = proxy.getPlayer(playerName)
+                                .flatMap(Player::getCurrentServer)
+                                .map(connection -> connection.getServerInfo().getName());
+                        if (localServer.isPresent()) {
+                            sender.sendMessage(miniMessage.deserialize(prefix + " <gray>The player <aqua>" + playerName + "</aqua> is currently on server: <aqua>" + localServer.get() + "</aqua></gray>"));
+                        } else {
+                            sender.sendMessage(miniMessage.deserialize(prefix + " <gray>The player <aqua>" + playerName + "</aqua> is not connected to this proxy.</gray>"));
+                        }
+                        return;
+                    }
+                    String playerKey = redisController.getPlayerUuidByName(playerName, ReadConsistency.REPLICA);
                     if (playerKey == null) {
                         sender.sendMessage(miniMessage.deserialize(prefix + " <gray>The player <aqua>" + playerName + "</aqua> does not exist.</gray>"));
                         return;
                     }
-                    String playerServer = redisController.getHashField("rv-players-server", playerKey);
+                    String playerServer = redisController.getHashField("rv-players-server", playerKey, ReadConsistency.REPLICA);
                     if (playerServer != null) {
                         sender.sendMessage(miniMessage.deserialize(prefix + " <gray>The player <aqua>" + playerName + "</aqua> is currently on server: <aqua>" + playerServer + "</aqua></gray>"));
                     } else {
@@ -179,10 +256,21 @@ public class RediVelocityCommand {
         return new CommandAPICommand("servers")
                 .withPermission("redivelocity.admin.player.servers")
                 .executes((sender, args) -> {
-                    Map<String, String> players = redisController.getHashValuesAsPair("rv-players-server");
-                    List<String> playersPrettyNames = players.entrySet().stream()
-                            .map(entry -> prefix + " <aqua>" + redisController.getHashField("rv-players-name", entry.getKey()) + "</aqua> <dark_gray>(<grey>Server: <aqua>" + entry.getValue() + "</aqua></grey>)</dark_gray>")
-                            .collect(Collectors.toList());
+                    if (!redisController.isAvailable()) {
+                        sendDegradedNotice(sender);
+                        String localPlayers = proxy.getAllPlayers().stream()
+                                .map(player -> prefix + " <aqua>" + player.getUsername() + "</aqua> <dark_gray>(<grey>Server: <aqua>" + player.getCurrentServer().map(connection -> connection.getServerInfo().getName()).orElse("none") + "</aqua></grey>)</dark_gray>")
+                                .collect(Collectors.joining("<br>"));
+                        sender.sendMessage(miniMessage.deserialize(prefix + " <gray>Current servers of the players on this proxy:<br>" + localPlayers + "</gray>"));
+                        return;
+                    }
+                    Map<String, String> playerNames = redisController.getHashValuesAsPair("rv-players-name", ReadConsistency.REPLICA);
+                    List<String> playersPrettyNames;
+                    try (Stream<Map.Entry<String, String>> players = redisController.scanHash("rv-players-server", ReadConsistency.REPLICA)) {
+                        playersPrettyNames = players
+                                .map(entry -> prefix + " <aqua>" + playerNames.get(entry.getKey()) + "</aqua> <dark_gray>(<grey>Server: <aqua>" + entry.getValue() + "</aqua></grey>)</dark_gray>")
+                                .collect(Collectors.toList());
+                    }
                     String playersPrettyString = String.join("<br>", playersPrettyNames);
                     if (playersPrettyNames.isEmpty()) {
                         sender.sendMessage(miniMessage.deserialize(prefix + " <gray>There are currently no players online. (Stupid msg, but when bug, pls report or fix it)</gray>"));
@@ -199,7 +287,8 @@ public class RediVelocityCommand {
                         createProxyPlayersCommand(),
                         createProxyPlayerCountCommand(),
                         createProxyServersCommand(),
-                        createProxyLeaderCommand()
+                        createProxyLeaderCommand(),
+                        createProxyHousekeepingCommand()
                 );
     }
 
@@ -207,9 +296,14 @@ public class RediVelocityCommand {
         return new CommandAPICommand("list")
                 .withPermission("redivelocity.admin.proxy.list")
                 .executes((sender, args) -> {
-                    Set<String> proxies = redisController.getAllHashFields("rv-proxies");
+                    if (!redisController.isAvailable()) {
+                        sendDegradedNotice(sender);
+                        sender.sendMessage(miniMessage.deserialize(prefix + " <gray>This proxy has <aqua>" + proxy.getPlayerCount() + "</aqua> players online.</gray>"));
+                        return;
+                    }
+                    Set<String> proxies = redisController.getAllHashFields("rv-proxies", ReadConsistency.REPLICA);
                     List<String> proxiesPrettyNames = proxies.stream()
-                            .map(proxyId -> prefix + " <aqua>" + proxyId + "</aqua> <dark_grey>(<grey>Players: </grey><aqua>" + redisController.getHashField("rv-proxy-players", proxyId) + "</aqua>)</dark_grey>")
+                            .map(proxyId -> prefix + " <aqua>" + proxyId + "</aqua> <dark_grey>(<grey>Players: </grey><aqua>" + redisController.getHashField("rv-proxy-players", proxyId, ReadConsistency.REPLICA) + "</aqua>)</dark_grey>")
                             .collect(Collectors.toList());
                     String proxiesPrettyString = String.join("<br>", proxiesPrettyNames);
                     if (proxies.isEmpty()) {
@@ -222,23 +316,33 @@ public class RediVelocityCommand {
 
     private CommandAPICommand createProxyPlayersCommand() {
         return new CommandAPICommand("players")
-                .withOptionalArguments(new StringArgument("proxy").replaceSuggestions(ArgumentSuggestions.stringCollection(input -> redisController.getAllHashFields("rv-proxies"))))
+                .withOptionalArguments(new StringArgument("proxy").replaceSuggestions(proxySuggestions()))
                 .withPermission("redivelocity.admin.proxy.players")
                 .executes((sender, args) -> {
                     String proxyId = (String) args.getOptional(0).orElse(null);
-                    List<String> players = redisController.getAllHashValues("rv-players-name");
-                    List<String> playersPrettyNames = players.stream()
-                            .map(player -> {
-                                String playerProxy = redisController.getHashField("rv-players-proxy", redisController.getHashKeyByValue("rv-players-name", player));
-                                if (proxyId == null) {
-                                    return prefix + " <aqua>" + player + "</aqua> <dark_gray>(<aqua>" + playerProxy + "</aqua>)</dark_gray>";
-                                } else if (playerProxy.equals(proxyId)) {
-                                    return prefix + " <aqua>" + player + "</aqua>";
-                                }
-                                return null;
-                            })
-                            .filter(Objects::nonNull)
-                            .collect(Collectors.toList());
+                    if (!redisController.isAvailable()) {
+                        sendDegradedNotice(sender);
+                        String localPlayers = proxy.getAllPlayers().stream()
+                                .map(player -> prefix + " <aqua>" + player.getUsername() + "</aqua>")
+                                .collect(Collectors.joining("<br>"));
+                        sender.sendMessage(miniMessage.deserialize(prefix + " <gray>Currently online players on this proxy:<br>" + localPlayers + "</gray>"));
+                        return;
+                    }
+                    List<String> playersPrettyNames;
+                    if (proxyId != null) {
+                        // only the proxy's own members are read, not every player of the network
+                        playersPrettyNames = redisController.getProxyPlayerNames(proxyId, ReadConsistency.REPLICA).values().stream()
+                                .sorted()
+                                .map(player -> prefix + " <aqua>" + player + "</aqua>")
+                                .collect(Collectors.toList());
+                    } else {
+                        Map<String, String> playerProxies = redisController.getHashValuesAsPair("rv-players-proxy", ReadConsistency.REPLICA);
+                        try (Stream<Map.Entry<String, String>> players = redisController.scanHash("rv-players-name", ReadConsistency.REPLICA)) {
+                            playersPrettyNames = players
+                                    .map(entry -> prefix + " <aqua>" + entry.getValue() + "</aqua> <dark_gray>(<aqua>" + playerProxies.get(entry.getKey()) + "</aqua>)</dark_gray>")
+                                    .collect(Collectors.toList());
+                        }
+                    }
                     String playersPrettyString = String.join("<br>", playersPrettyNames);
                     if (playersPrettyNames.isEmpty()) {
                         if (proxyId == null) {
@@ -260,10 +364,14 @@ public class RediVelocityCommand {
         return new CommandAPICommand("leader")
                 .withPermission("redivelocity.admin.proxy.leader")
                 .executes((sender, args) -> {
-                    String leaderProxy = redisController.getString("rv-proxy-leader");
+                    if (!redisController.isAvailable()) {
+                        sendDegradedNotice(sender);
+                        return;
+                    }
+                    String leaderProxy = redisController.getString("rv-proxy-leader", ReadConsistency.REPLICA);
 
                     if (leaderProxy != null && !leaderProxy.isEmpty()) {
-                        String playerCount = redisController.getHashField("rv-proxy-players", leaderProxy);
+                        String playerCount = redisController.getHashField("rv-proxy-players", leaderProxy, ReadConsistency.REPLICA);
                         if (playerCount == null) playerCount = "0";
 
                         sender.sendMessage(miniMessage.deserialize(prefix + " <gray>Current leader proxy: <aqua>" + leaderProxy +  "</aqua> (<aqua>" + playerCount + " players online</aqua>)</gray>"));
@@ -273,21 +381,54 @@ public class RediVelocityCommand {
                 });
     }
 
+    private CommandAPICommand createProxyHousekeepingCommand() {
+        return new CommandAPICommand("housekeeping")
+                .withPermission("redivelocity.admin.proxy.housekeeping")
+                .executes((sender, args) -> {
+                    if (!redisController.isAvailable()) {
+                        sendDegradedNotice(sender);
+                        return;
+                    }
+                    List<String> liveProxies = redisController.getSortedSetRangeByScore(RedisController.RV_PROXY_HEARTBEAT,
+                            System.currentTimeMillis() - heartbeatTimeoutMillis, Double.POSITIVE_INFINITY, ReadConsistency.REPLICA);
+
+                    if (liveProxies.isEmpty()) {
+                        sender.sendMessage(miniMessage.deserialize(prefix + " <red>There is no live proxy.</red>"));
+                        return;
+                    }
+                    String duties = redisController.getAllHashFields("rv-proxies", ReadConsistency.REPLICA).stream()
+                            .sorted()
+                            .map(proxyId -> {
+                                String owner = HousekeepingShards.owner(liveProxies, HousekeepingShards.proxyDuty(proxyId));
+                                return liveProxies.contains(proxyId)
+                                        ? "<aqua>" + proxyId + "</aqua> is reconciled by <aqua>" + owner + "</aqua>"
+                                        : "<aqua>" + proxyId + "</aqua> (<red>dead</red>) is removed by <aqua>" + owner + "</aqua>";
+                            })
+                            .collect(Collectors.joining("<br>"));
+                    sender.sendMessage(miniMessage.deserialize(prefix + " <gray>" + duties + "</gray>"));
+                });
+    }
+
     private CommandAPICommand createProxyPlayerCountCommand() {
         return new CommandAPICommand("playercount")
-                .withOptionalArguments(new StringArgument("proxy").replaceSuggestions(ArgumentSuggestions.stringCollection(input -> redisController.getAllHashFields("rv-proxies"))))
+                .withOptionalArguments(new StringArgument("proxy").replaceSuggestions(proxySuggestions()))
                 .withPermission("redivelocity.admin.proxy.playercount")
                 .executes((sender, args) -> {
                     String proxyId = (String) args.getOptional(0).orElse(null);
+                    if (!redisController.isAvailable()) {
+                        sendDegradedNotice(sender);
+                        sender.sendMessage(miniMessage.deserialize(prefix + " <gray>There are currently <aqua>" + proxy.getPlayerCount() + "</aqua> players online on this proxy.</gray>"));
+                        return;
+                    }
                     if (proxyId == null) {
-                        String playerCount = redisController.getString("rv-global-playercount");
+                        String playerCount = redisController.getString("rv-global-playercount", ReadConsistency.REPLICA);
                         if (playerCount != null) {
                             sender.sendMessage(miniMessage.deserialize(prefix + " <gray>There are currently <aqua>" + playerCount + "</aqua> players online.</gray>"));
                         } else {
                             sender.sendMessage(miniMessage.deserialize(prefix + " <gray>There are currently no players online.</gray>"));
                         }
                     } else {
-                        String playerCount = redisController.getHashField("rv-proxy-players", proxyId);
+                        String playerCount = redisController.getHashField("rv-proxy-players", proxyId, ReadConsistency.REPLICA);
                         if (playerCount != null) {
                             sender.sendMessage(miniMessage.deserialize(prefix + " <gray>There are currently <aqua>" + playerCount + "</aqua> players online on proxy <aqua>" + proxyId + "</aqua>.</gray>"));
                         } else {
@@ -301,17 +442,25 @@ public class RediVelocityCommand {
         return new CommandAPICommand("servers")
                 .withPermission("redivelocity.admin.proxy.servers")
                 .executes((sender, args) -> {
+                    Map<String, Long> networkCounts;
+                    if (redisController.isAvailable()) {
+                        networkCounts = redisController.getServerPlayerCounts(ReadConsistency.REPLICA);
+                    } else {
+                        sendDegradedNotice(sender);
+                        networkCounts = null;
+                    }
                     List<CompletableFuture<String>> futures = proxy.getAllServers().stream()
-                            .map(server -> CompletableFuture.supplyAsync(() -> {
-                                try {
-                                    ServerPing result = server.ping().get();
-                                    return prefix + " <color:#0dbf00>●</color> <aqua>" + server.getServerInfo().getName() + "</aqua> <dark_gray>(<grey>Address: <aqua>" + server.getServerInfo().getAddress() + "</aqua>, Version: <aqua>" + result.getVersion().getProtocol() + ", " + result.getVersion().getName() + "</aqua></grey>)</dark_gray>";
-                                } catch (Exception e) {
-                                    return prefix + " <color:#f00000>●</color> <aqua>" + server.getServerInfo().getName() + "</aqua> <dark_gray>(<grey>Address: <aqua>" + server.getServerInfo().getAddress() + "</aqua></grey>)</dark_gray>";
+                            .map(server -> server.ping().handle((result, e) -> {
+                                String serverName = server.getServerInfo().getName();
+                                String players = (networkCounts != null ? ", Players: <aqua>" + networkCounts.getOrDefault(serverName, 0L) + "</aqua>" : "")
+                                        + ", On this proxy: <aqua>" + server.getPlayersConnected().size() + "</aqua>";
+                                if (e == null) {
+                                    return prefix + " <color:#0dbf00>●</color> <aqua>" + serverName + "</aqua> <dark_gray>(<grey>Address: <aqua>" + server.getServerInfo().getAddress() + "</aqua>, Version: <aqua>" + result.getVersion().getProtocol() + ", " + result.getVersion().getName() + "</aqua>" + players + "</grey>)</dark_gray>";
                                 }
+                                return prefix + " <color:#f00000>●</color> <aqua>" + serverName + "</aqua> <dark_gray>(<grey>Address: <aqua>" + server.getServerInfo().getAddress() + "</aqua>" + players + "</grey>)</dark_gray>";
                             }))
                             .toList();
-                    CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenRun(() -> {
+                    CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenRun(() -> {
                         List<String> proxyRegisteredServersPrettyNames = futures.stream()
                                 .map(CompletableFuture::join)
                                 .collect(Collectors.toList());
@@ -324,4 +473,54 @@ public class RediVelocityCommand {
                     });
                 });
     }
-}
\ No newline at end of file
+
+    private CommandAPICommand createRedisSubcommands() {
+        return new CommandAPICommand("redis")
+                .withSubcommands(
+                        createRedisPoolCommand(),
+                        createRedisCacheCommand(),
+                        createRedisExecutorCommand()
+                );
+    }
+
+    private CommandAPICommand createRedisPoolCommand() {
+        return new CommandAPICommand("pool")
+                .withPermission("redivelocity.admin.redis.pool")
+                .executes((sender, args) -> {
+                    RedisPoolStats stats = redisController.getPoolStats();
+                    sender.sendMessage(miniMessage.deserialize(prefix + " <gray>Redis connection pool:</gray><br>"
+                            + prefix + " <gray>Active: <aqua>" + stats.active() + "</aqua>/<aqua>" + stats.maxTotal() + "</aqua>, Idle: <aqua>" + stats.idle() + "</aqua>, Waiting threads: <aqua>" + stats.waiters() + "</aqua></gray><br>"
+                            + prefix + " <gray>Borrow wait: <aqua>" + stats.meanBorrowWaitMillis() + "ms</aqua> mean, <aqua>" + stats.maxBorrowWaitMillis() + "ms</aqua> max</gray><br>"
+                            + prefix + " <gray>Borrowed: <aqua>" + stats.borrowed() + "</aqua>, Created: <aqua>" + stats.created() + "</aqua>, Destroyed: <aqua>" + stats.destroyed() + "</aqua></gray>"));
+                });
+    }
+
+    private CommandAPICommand createRedisCacheCommand() {
+        return new CommandAPICommand("cache")
+                .withPermission("redivelocity.admin.redis.cache")
+                .executes((sender, args) -> {
+                    RedisCacheStats stats = redisController.getNearCacheStats();
+                    if (stats == null) {
+                        sender.sendMessage(miniMessage.deserialize(prefix + " <gray>The Redis near cache is <red>disabled</red>.</gray>"));
+                        return;
+                    }
+                    sender.sendMessage(miniMessage.deserialize(prefix + " <gray>Redis near cache:</gray><br>"
+                            + prefix + " <gray>Entries: <aqua>" + stats.size() + "</aqua>/<aqua>" + stats.maxSize() + "</aqua></gray><br>"
+                            + prefix + " <gray>Hits: <aqua>" + stats.hits() + "</aqua>, Misses: <aqua>" + stats.misses() + "</aqua>, Hit rate: <aqua>" + String.format(Locale.ROOT, "%.1f%%", stats.hitRate() * 100) + "</aqua></gray><br>"
+                            + prefix + " <gray>Evictions: <aqua>" + stats.evictions() + "</aqua>, Invalidations: <aqua>" + stats.invalidations() + "</aqua></gray>"));
+                });
+    }
+
+    private CommandAPICommand createRedisExecutorCommand() {
+        return new CommandAPICommand("executor")
+                .withPermission("redivelocity.admin.redis.executor")
+                .executes((sender, args) -> {
+                    RedisExecutorStats stats = redisController.getExecutorStats();
+                    sender.sendMessage(miniMessage.deserialize(prefix + " <gray>Redis I/O executor:</gray><br>"
+                            + prefix + " <gray>Pending tasks: <aqua>" + stats.pending() + "</aqua>/<aqua>" + stats.maxPending() + "</aqua>, Queued commands: <aqua>" + redisController.getCommandQueueSize() + "</aqua></gray><br>"
+                            + prefix + " <gray>Write pipeline latency: <aqua>" + redisController.getWriteLatencyMillis() + "ms</aqua></gray><br>"
+                            + prefix + " <gray>Task latency: <aqua>" + stats.meanLatencyMillis() + "ms</aqua> mean, <aqua>" + stats.maxLatencyMillis() + "ms</aqua> max</gray><br>"
+                            + prefix + " <gray>Completed: <aqua>" + stats.completed() + "</aqua>, Rejected: <aqua>" + stats.rejected() + "</aqua></gray>"));
+                });
+    }
+}
@@ -19,18 +19,23 @@ package dev.bypixel.redivelocity.config;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Getter
 @Setter
 public class Config {
-    private int configVersion = 11;
+    private int configVersion = 12;
     private RedisConfig redis = new RedisConfig();
     private CloudSupportConfig cloud = new CloudSupportConfig();
     private VersionControlConfig versionControl = new VersionControlConfig();
     private MessagesConfig messages = new MessagesConfig();
     private ResourcePackConfig resourcepack = new ResourcePackConfig();
     private JoingateConfig joingate = new JoingateConfig();
+    private LoginAdmissionConfig loginAdmission = new LoginAdmissionConfig();
+    private ServerSwitchCoalescingConfig serverSwitchCoalescing = new ServerSwitchCoalescingConfig();
+    private LeaderElectionConfig leaderElection = new LeaderElectionConfig();
+    private HeartbeatConfig heartbeat = new HeartbeatConfig();
     private boolean jsonFormat;
     private boolean playerCountSync;
     private boolean debugMode;
@@ -44,6 +49,77 @@ public class Config {
         private String password = "password";
         private boolean useSsl = false;
         private String channel = "redivelocity-players";
+        private int scanPageSize = 1000;
+        private boolean repairKeySchema = true;
+        private int asyncPipelineSize = 256;
+        private RedisPoolConfig pool = new RedisPoolConfig();
+        private RedisExecutorConfig executor = new RedisExecutorConfig();
+        private RedisCircuitBreakerConfig circuitBreaker = new RedisCircuitBreakerConfig();
+        private RedisJournalConfig journal = new RedisJournalConfig();
+        private RedisPlayerExpiryConfig playerExpiry = new RedisPlayerExpiryConfig();
+        private List<String> replicas = new ArrayList<>();
+        private RedisClusterConfig cluster = new RedisClusterConfig();
+        private RedisNearCacheConfig nearCache = new RedisNearCacheConfig();
+    }
+
+    @Getter
+    @Setter
+    public static class RedisPoolConfig {
+        private int maxTotal = 16;
+        private int maxIdle = 16;
+        private int minIdle = 2;
+        private long maxWaitMillis = 2000;
+        private int timeoutMillis = 2000;
+        private long evictionIntervalMillis = 30000;
+        private long minEvictableIdleMillis = 60000;
+        private boolean warmup = true;
+    }
+
+    @Getter
+    @Setter
+    public static class RedisExecutorConfig {
+        private int maxPendingTasks = 1024;
+    }
+
+    @Getter
+    @Setter
+    public static class RedisCircuitBreakerConfig {
+        private int failureThreshold = 5;
+        private long openMillis = 5000;
+        private long commandTimeoutMillis = 3000;
+    }
+
+    @Getter
+    @Setter
+    public static class RedisJournalConfig {
+        private boolean enabled = true;
+        private int segmentSizeKb = 1024;
+        private int maxSegments = 16;
+        private int replayBatchSize = 200;
+    }
+
+    @Getter
+    @Setter
+    public static class RedisPlayerExpiryConfig {
+        private boolean enabled = false;
+        private long ttlMillis = 60000;
+        private int renewBatchSize = 500;
+    }
+
+    @Getter
+    @Setter
+    public static class RedisClusterConfig {
+        private boolean enabled = false;
+        private List<String> nodes = new ArrayList<>();
+        private int playerShards = 16;
+        private int maxAttempts = 5;
+    }
+
+    @Getter
+    @Setter
+    public static class RedisNearCacheConfig {
+        private boolean enabled = false;
+        private int maxSize = 1000;
     }
 
     @Getter
@@ -69,6 +145,37 @@ public class Config {
         private Boolean allowBedrockClients = true;
     }
 
+    @Getter
+    @Setter
+    public static class LoginAdmissionConfig {
+        private boolean enabled = true;
+        private long maxRedisLatencyMillis = 250;
+        private int maxPendingCommands = 2000;
+        private long maxDelayMillis = 3000;
+        private String kickMessage = "<dark_grey>- <dark_red>Busy</dark_red> -</dark_grey><br><br><grey>The network is under heavy load right now.<br>Please try to join again in a few seconds!</grey>";
+    }
+
+    @Getter
+    @Setter
+    public static class ServerSwitchCoalescingConfig {
+        private boolean enabled = true;
+        private long windowMillis = 1000;
+        private boolean publishIntermediateSwitches = false;
+    }
+
+    @Getter
+    @Setter
+    public static class LeaderElectionConfig {
+        private long leaseMillis = 15000;
+    }
+
+    @Getter
+    @Setter
+    public static class HeartbeatConfig {
+        private long intervalMillis = 10000;
+        private long timeoutMillis = 30000;
+    }
+
     @Getter
     @Setter
     public static class MessagesConfig {
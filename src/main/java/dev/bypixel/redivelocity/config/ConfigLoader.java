@@ -40,7 +40,7 @@ public class ConfigLoader {
 
     private final RediVelocityLogger rediVelocityLogger;
     private final LoaderOptions loaderOptions = new LoaderOptions();
-    private final Yaml yaml = new Yaml(new Constructor(Config.class, loaderOptions));
+    private final Yaml yaml = createYaml();
 
     @Getter
     private Config config;
@@ -52,6 +52,15 @@ public class ConfigLoader {
         load();
     }
 
+    /**
+     * Settings that were removed in a newer version are skipped, so an old config still loads and keeps its other values.
+     */
+    private Yaml createYaml() {
+        Constructor constructor = new Constructor(Config.class, loaderOptions);
+        constructor.getPropertyUtils().setSkipMissingProperties(true);
+        return new Yaml(constructor);
+    }
+
     public void load() {
         File configFile = new File("plugins/redivelocity/config.yml");
         configUpdated = false;
@@ -140,7 +149,83 @@ public class ConfigLoader {
             writer.write("  username: \"" + config.getRedis().getUsername() + "\"\n");
             writer.write("  password: \"" + config.getRedis().getPassword() + "\"\n");
             writer.write("  useSsl: " + config.getRedis().isUseSsl() + "\n");
-            writer.write("  channel: \"" + config.getRedis().getChannel() + "\"\n\n");
+            writer.write("  channel: \"" + config.getRedis().getChannel() + "\"\n");
+            writer.write("  # Amount of hash entries fetched per HSCAN page when walking big hashes\n");
+            writer.write("  scanPageSize: " + config.getRedis().getScanPageSize() + "\n");
+            writer.write("  # Delete rv-* keys holding an unexpected type at startup instead of only reporting them\n");
+            writer.write("  repairKeySchema: " + config.getRedis().isRepairKeySchema() + "\n");
+            writer.write("  # Max amount of queued async commands sent to Redis in one pipeline\n");
+            writer.write("  asyncPipelineSize: " + config.getRedis().getAsyncPipelineSize() + "\n");
+            writer.write("  # Connection pool, size it for the amount of players and Redis latency of this proxy\n");
+            writer.write("  pool:\n");
+            writer.write("    maxTotal: " + config.getRedis().getPool().getMaxTotal() + "\n");
+            writer.write("    maxIdle: " + config.getRedis().getPool().getMaxIdle() + "\n");
+            writer.write("    minIdle: " + config.getRedis().getPool().getMinIdle() + "\n");
+            writer.write("    # How long a thread waits for a free connection before failing\n");
+            writer.write("    maxWaitMillis: " + config.getRedis().getPool().getMaxWaitMillis() + "\n");
+            writer.write("    # Connect and socket timeout of a single connection\n");
+            writer.write("    timeoutMillis: " + config.getRedis().getPool().getTimeoutMillis() + "\n");
+            writer.write("    evictionIntervalMillis: " + config.getRedis().getPool().getEvictionIntervalMillis() + "\n");
+            writer.write("    minEvictableIdleMillis: " + config.getRedis().getPool().getMinEvictableIdleMillis() + "\n");
+            writer.write("    # Open minIdle connections at startup\n");
+            writer.write("    warmup: " + config.getRedis().getPool().isWarmup() + "\n");
+            writer.write("  # Virtual threads running blocking Redis work off Velocity's threads\n");
+            writer.write("  executor:\n");
+            writer.write("    # Tasks beyond this limit are rejected instead of queued while Redis is slow\n");
+            writer.write("    maxPendingTasks: " + config.getRedis().getExecutor().getMaxPendingTasks() + "\n");
+            writer.write("  # Fails Redis calls right away while Redis is down, the proxy then only serves local data\n");
+            writer.write("  circuitBreaker:\n");
+            writer.write("    # Consecutive connection failures or timeouts that open the breaker\n");
+            writer.write("    failureThreshold: " + config.getRedis().getCircuitBreaker().getFailureThreshold() + "\n");
+            writer.write("    # How long the breaker stays open before Redis is probed again\n");
+            writer.write("    openMillis: " + config.getRedis().getCircuitBreaker().getOpenMillis() + "\n");
+            writer.write("    # Deadline of a single Redis call\n");
+            writer.write("    commandTimeoutMillis: " + config.getRedis().getCircuitBreaker().getCommandTimeoutMillis() + "\n");
+            writer.write("  # Writes and events that can't reach Redis are kept in plugins/redivelocity/journal/ and replayed once it's back\n");
+            writer.write("  journal:\n");
+            writer.write("    enabled: " + config.getRedis().getJournal().isEnabled() + "\n");
+            writer.write("    # Size of one journal segment file\n");
+            writer.write("    segmentSizeKb: " + config.getRedis().getJournal().getSegmentSizeKb() + "\n");
+            writer.write("    # Segments kept on disk, the oldest one is dropped when a new one would exceed this\n");
+            writer.write("    maxSegments: " + config.getRedis().getJournal().getMaxSegments() + "\n");
+            writer.write("    # Journal entries sent to Redis in one pipeline during replay\n");
+            writer.write("    replayBatchSize: " + config.getRedis().getJournal().getReplayBatchSize() + "\n");
+            writer.write("  # Player entries expire unless their proxy keeps renewing them, so a crashed proxy leaves no ghosts (needs Redis 7.4)\n");
+            writer.write("  playerExpiry:\n");
+            writer.write("    enabled: " + config.getRedis().getPlayerExpiry().isEnabled() + "\n");
+            writer.write("    # Time to live of the entries, they are renewed three times within it (min 3000)\n");
+            writer.write("    ttlMillis: " + config.getRedis().getPlayerExpiry().getTtlMillis() + "\n");
+            writer.write("    # Players whose entries are renewed in one pipeline\n");
+            writer.write("    renewBatchSize: " + config.getRedis().getPlayerExpiry().getRenewBatchSize() + "\n");
+            writer.write("  # Read replicas (host:port) serving reads that tolerate slightly stale data\n");
+            if (config.getRedis().getReplicas().isEmpty()) {
+                writer.write("  replicas: []\n");
+            } else {
+                writer.write("  replicas:\n");
+                for (String replica : config.getRedis().getReplicas()) {
+                    writer.write("    - \"" + replica + "\"\n");
+                }
+            }
+            writer.write("  # Redis Cluster mode, host and port are used as seed node if no nodes are set\n");
+            writer.write("  cluster:\n");
+            writer.write("    enabled: " + config.getRedis().getCluster().isEnabled() + "\n");
+            if (config.getRedis().getCluster().getNodes().isEmpty()) {
+                writer.write("    nodes: []\n");
+            } else {
+                writer.write("    nodes:\n");
+                for (String node : config.getRedis().getCluster().getNodes()) {
+                    writer.write("      - \"" + node + "\"\n");
+                }
+            }
+            writer.write("    # Amount of slots the player hashes are spread over, has to be the same on all proxies\n");
+            writer.write("    playerShards: " + config.getRedis().getCluster().getPlayerShards() + "\n");
+            writer.write("    # How often a command is retried after a MOVED/ASK redirect or a failed node\n");
+            writer.write("    maxAttempts: " + config.getRedis().getCluster().getMaxAttempts() + "\n");
+            writer.write("  # Client-side cache for rarely changing keys like the player count and the proxy leader (needs Redis 6+)\n");
+            writer.write("  nearCache:\n");
+            writer.write("    enabled: " + config.getRedis().getNearCache().isEnabled() + "\n");
+            writer.write("    # Max amount of cached replies\n");
+            writer.write("    maxSize: " + config.getRedis().getNearCache().getMaxSize() + "\n\n");
 
             writer.write("# Cloud system integration (can be simplecloud or vulpescloud)\n");
             writer.write("cloud:\n");
@@ -165,6 +250,37 @@ public class ConfigLoader {
             writer.write("  floodgateHook: " + config.getJoingate().getFloodgateHook() + "\n");
             writer.write("  allowBedrockClients: " + config.getJoingate().getAllowBedrockClients() + "\n\n");
 
+            writer.write("# Login admission, holds back and then rejects new logins while Redis is overloaded\n");
+            writer.write("loginAdmission:\n");
+            writer.write("  enabled: " + config.getLoginAdmission().isEnabled() + "\n");
+            writer.write("  # Round trip time of the Redis write pipeline above which Redis counts as overloaded\n");
+            writer.write("  maxRedisLatencyMillis: " + config.getLoginAdmission().getMaxRedisLatencyMillis() + "\n");
+            writer.write("  # Amount of queued Redis commands and tasks above which Redis counts as overloaded\n");
+            writer.write("  maxPendingCommands: " + config.getLoginAdmission().getMaxPendingCommands() + "\n");
+            writer.write("  # How long a login waits for Redis to recover before it's rejected, 0 rejects right away\n");
+            writer.write("  maxDelayMillis: " + config.getLoginAdmission().getMaxDelayMillis() + "\n");
+            writer.write("  kickMessage: \"" + escapeString(config.getLoginAdmission().getKickMessage()) + "\"\n\n");
+
+            writer.write("# Server switch coalescing, a burst of switches of one player only writes and publishes the latest server\n");
+            writer.write("serverSwitchCoalescing:\n");
+            writer.write("  enabled: " + config.getServerSwitchCoalescing().isEnabled() + "\n");
+            writer.write("  # Switches of a player within this time after the last update are merged into one\n");
+            writer.write("  windowMillis: " + config.getServerSwitchCoalescing().getWindowMillis() + "\n");
+            writer.write("  # Also publish a serverSwitch event for every merged hop, for consumers that need each one\n");
+            writer.write("  publishIntermediateSwitches: " + config.getServerSwitchCoalescing().isPublishIntermediateSwitches() + "\n\n");
+
+            writer.write("# Leader election, the leader reconciles the network-wide counters\n");
+            writer.write("leaderElection:\n");
+            writer.write("  # How long the leader lease lasts, a crashed leader is replaced within this time (min 3000)\n");
+            writer.write("  leaseMillis: " + config.getLeaderElection().getLeaseMillis() + "\n\n");
+
+            writer.write("# Proxy heartbeats, the live proxies share the removal of proxies that stopped sending them and the per-proxy counters\n");
+            writer.write("heartbeat:\n");
+            writer.write("  # How often every proxy sends its heartbeat\n");
+            writer.write("  intervalMillis: " + config.getHeartbeat().getIntervalMillis() + "\n");
+            writer.write("  # A proxy without a heartbeat for this long is considered dead, keep it a few intervals above intervalMillis\n");
+            writer.write("  timeoutMillis: " + config.getHeartbeat().getTimeoutMillis() + "\n\n");
+
             writer.write("# Message format\n");
             writer.write("messages:\n");
             writer.write("  prefix: \"" + escapeString(config.getMessages().getPrefix()) + "\"\n\n");
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2025.
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ *  along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dev.bypixel.redivelocity.jedisWrapper;
+
+import redis.clients.jedis.params.ScanParams;
+import redis.clients.jedis.resps.ScanResult;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * Walks a hash page by page with HSCAN, so only one page is held in memory at a time.
+ * Like every SCAN-family command, an entry may show up twice if the hash is resized meanwhile.
+ */
+class HashScanIterator implements Iterator<Map.Entry<String, String>> {
+
+    private final Function<String, ScanResult<Map.Entry<String, String>>> pageLoader;
+    private String cursor = ScanParams.SCAN_POINTER_START;
+    private Iterator<Map.Entry<String, String>> page = Collections.emptyIterator();
+    private boolean finished;
+
+    HashScanIterator(Function<String, ScanResult<Map.Entry<String, String>>> pageLoader) {
+        this.pageLoader = pageLoader;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!page.hasNext() && !finished) {
+            ScanResult<Map.Entry<String, String>> result = pageLoader.apply(cursor);
+            cursor = result.getCursor();
+            finished = result.isCompleteIteration();
+            page = result.getResult().iterator();
+        }
+        return page.hasNext();
+    }
+
+    @Override
+    public Map.Entry<String, String> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page.next();
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2025.
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ *  along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dev.bypixel.redivelocity.jedisWrapper;
+
+import dev.bypixel.redivelocity.RediVelocityLogger;
+import redis.clients.jedis.AbstractPipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.ScanIteration;
+import redis.clients.jedis.UnifiedJedis;
+import redis.clients.jedis.resps.ScanResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks that every rv-* key holds the type RediVelocity expects, so writes can skip the TYPE round trip.
+ */
+public class KeySchemaValidator {
+
+    private static final Map<String, String> EXPECTED_TYPES = Map.ofEntries(
+            Map.entry("rv-players-name", "hash"),
+            Map.entry("rv-players-name-index", "hash"),
+            Map.entry("rv-players-proxy", "hash"),
+            Map.entry("rv-players-ip", "hash"),
+            Map.entry("rv-players-lastseen", "hash"),
+            Map.entry("rv-players-server", "hash"),
+            Map.entry("rv-proxies", "hash"),
+            Map.entry("rv-proxy-heartbeat", "zset"),
+            Map.entry("rv-proxy-players", "hash"),
+            Map.entry("rv-server-players", "hash"),
+            Map.entry("rv-proxy-server-players", "hash"),
+            Map.entry("rv-proxy-counter-drift", "hash"),
+            Map.entry("rv-global-playercount", "string"),
+            Map.entry("rv-proxy-leader", "string"),
+            Map.entry("rv-proxy-leader-token", "string"),
+            Map.entry("rv-proxies-counter", "string")
+    );
+    private static final Map<String, String> EXPECTED_PREFIX_TYPES = Map.of(
+            "rv-proxy-members-", "set"
+    );
+
+    private final RediVelocityLogger rediVelocityLogger;
+    private final boolean repair;
+    private final int scanPageSize;
+
+    public KeySchemaValidator(RediVelocityLogger rediVelocityLogger, boolean repair, int scanPageSize) {
+        this.rediVelocityLogger = rediVelocityLogger;
+        this.repair = repair;
+        this.scanPageSize = scanPageSize;
+    }
+
+    /**
+     * Scans all rv-* keys (on every master in cluster mode) and reports (or deletes, if repairing is enabled)
+     * the ones holding a wrong type.
+     *
+     * @return the amount of keys with a wrong type
+     */
+    public int validate(UnifiedJedis client) {
+        ScanIteration iteration = client.scanIteration(scanPageSize, "rv-*");
+        int invalidKeys = 0;
+
+        while (!iteration.isIterationCompleted()) {
+            ScanResult<String> page = iteration.nextBatch();
+
+            List<String> keys = new ArrayList<>();
+            List<Response<String>> types = new ArrayList<>();
+            try (AbstractPipeline pipeline = client.pipelined()) {
+                for (String key : page.getResult()) {
+                    if (getExpectedType(key) != null) {
+                        keys.add(key);
+                        types.add(pipeline.type(key));
+                    }
+                }
+                pipeline.sync();
+            }
+
+            List<String> brokenKeys = new ArrayList<>();
+            for (int i = 0; i < keys.size(); i++) {
+                String key = keys.get(i);
+                String expectedType = getExpectedType(key);
+                String actualType = types.get(i).get();
+                if (!expectedType.equals(actualType) && !"none".equals(actualType)) {
+                    rediVelocityLogger.sendErrorLogs("Key " + key + " should hold a " + expectedType + " but holds a " + actualType + "." + (repair ? " Deleting it..." : ""));
+                    brokenKeys.add(key);
+                }
+            }
+
+            invalidKeys += brokenKeys.size();
+            if (repair) {
+                // one DEL per key, a cluster rejects multi-key commands across slots
+                brokenKeys.forEach(client::del);
+            }
+        }
+
+        return invalidKeys;
+    }
+
+    static String getExpectedType(String key) {
+        String name = RedisKeyLayout.logicalName(key);
+        String expectedType = EXPECTED_TYPES.get(name);
+        if (expectedType != null) {
+            return expectedType;
+        }
+        for (Map.Entry<String, String> prefix : EXPECTED_PREFIX_TYPES.entrySet()) {
+            if (name.startsWith(prefix.getKey())) {
+                return prefix.getValue();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2025.
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ *  along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dev.bypixel.redivelocity.jedisWrapper;
+
+/**
+ * Declares how fresh the result of a read has to be.
+ */
+public enum ReadConsistency {
+    /**
+     * Always read from the primary, e.g. right before writing based on the result.
+     */
+    PRIMARY,
+    /**
+     * A slightly stale result is fine, so the read may be served by a replica.
+     */
+    REPLICA
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright (c) 2025.
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ *  along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dev.bypixel.redivelocity.jedisWrapper;
+
+import redis.clients.jedis.AbstractPipeline;
+import redis.clients.jedis.PipeliningBase;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.UnifiedJedis;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Queues Redis commands on a single connection and sends them in one flush.
+ * Every method returns a {@link Response} (or a {@link Supplier} for reads over sharded keys) that can be read after {@link #sync()}.
+ * Keys are logical rv-* names, the {@link RedisKeyLayout} decides which Redis keys they end up in.
+ */
+public class RedisBatch implements AutoCloseable {
+
+    private final PipeliningBase commands;
+    private final Runnable flush;
+    private final BiFunction<String, String, Response<Long>> publisher;
+    private final UnifiedJedis clusterClient;
+    private final Closeable owner;
+    private final RedisKeyLayout keyLayout;
+    private final List<Runnable> pendingPublishes = new ArrayList<>();
+
+    private RedisBatch(PipeliningBase commands, Runnable flush, BiFunction<String, String, Response<Long>> publisher, UnifiedJedis clusterClient, Closeable owner, RedisKeyLayout keyLayout) {
+        this.commands = commands;
+        this.flush = flush;
+        this.publisher = publisher;
+        this.clusterClient = clusterClient;
+        this.owner = owner;
+        this.keyLayout = keyLayout;
+    }
+
+    static RedisBatch pipelined(UnifiedJedis client, RedisKeyLayout keyLayout) {
+        AbstractPipeline pipeline = client.pipelined();
+        return new RedisBatch(pipeline, pipeline::sync, pipeline::publish, keyLayout.isCluster() ? client : null, pipeline, keyLayout);
+    }
+
+    public Response<Long> setHashField(String hashName, String fieldName, String value) {
+        return commands.hset(keyLayout.key(hashName, fieldName), fieldName, value);
+    }
+
+    public Supplier<Long> setHashFields(String hashName, Map<String, String> values) {
+        if (!keyLayout.isSharded(hashName)) {
+            return commands.hset(keyLayout.key(hashName), values);
+        }
+        List<Response<Long>> replies = new ArrayList<>();
+        values.forEach((field, value) -> replies.add(setHashField(hashName, field, value)));
+        return sum(replies);
+    }
+
+    public Supplier<Long> deleteHashField(String hashName, String... fieldNames) {
+        if (!keyLayout.isSharded(hashName)) {
+            return commands.hdel(keyLayout.key(hashName), fieldNames);
+        }
+        List<Response<Long>> replies = new ArrayList<>();
+        for (String fieldName : fieldNames) {
+            replies.add(commands.hdel(keyLayout.key(hashName, fieldName), fieldName));
+        }
+        return sum(replies);
+    }
+
+    public Supplier<Long> deleteHash(String hashName) {
+        return fanOut(hashName, commands::del, Long::sum);
+    }
+
+    public Response<Long> incrementHashField(String hashName, String fieldName, long delta) {
+        return commands.hincrBy(keyLayout.key(hashName, fieldName), fieldName, delta);
+    }
+
+    public Response<String> setString(String key, String value) {
+        return commands.set(keyLayout.key(key), value);
+    }
+
+    public Response<Long> deleteString(String key) {
+        return commands.del(keyLayout.key(key));
+    }
+
+    public Response<Long> incrementString(String key, long delta) {
+        return commands.incrBy(keyLayout.key(key), delta);
+    }
+
+    public Response<String> getString(String key) {
+        return commands.get(keyLayout.key(key));
+    }
+
+    public Response<String> getHashField(String hashName, String fieldName) {
+        return commands.hget(keyLayout.key(hashName, fieldName), fieldName);
+    }
+
+    /**
+     * Sets a field of a hash that is sharded by player, like the name index, in the shard of the given player.
+     */
+    public Response<Long> setPlayerHashField(String hashName, String playerUuid, String fieldName, String value) {
+        return commands.hset(keyLayout.playerKey(hashName, playerUuid), fieldName, value);
+    }
+
+    /**
+     * Looks a field up in every shard of a hash that is sharded by player and returns the first value found.
+     */
+    public Supplier<String> findPlayerHashField(String hashName, String fieldName) {
+        List<Response<String>> replies = keyLayout.keys(hashName).stream().map(key -> commands.hget(key, fieldName)).toList();
+        return () -> {
+            for (Response<String> reply : replies) {
+                if (reply.get() != null) {
+                    return reply.get();
+                }
+            }
+            return null;
+        };
+    }
+
+    /**
+     * Sets the time to live of single hash fields, this needs Redis 7.4 or newer.
+     */
+    public Supplier<Long> expireHashFields(String hashName, long millis, String... fieldNames) {
+        Map<String, List<String>> fieldsByKey = new HashMap<>();
+        for (String fieldName : fieldNames) {
+            fieldsByKey.computeIfAbsent(keyLayout.key(hashName, fieldName), key -> new ArrayList<>()).add(fieldName);
+        }
+        return expireFields(fieldsByKey, millis);
+    }
+
+    /**
+     * Sets the time to live of fields of a hash that is sharded by player, keyed by the UUID of their player.
+     */
+    public Supplier<Long> expirePlayerHashFields(String hashName, long millis, Map<String, String> fieldsByPlayer) {
+        Map<String, List<String>> fieldsByKey = new HashMap<>();
+        fieldsByPlayer.forEach((uuid, fieldName) -> fieldsByKey.computeIfAbsent(keyLayout.playerKey(hashName, uuid), key -> new ArrayList<>()).add(fieldName));
+        return expireFields(fieldsByKey, millis);
+    }
+
+    public Supplier<Long> expire(String key, long millis) {
+        return fanOut(key, redisKey -> commands.pexpire(redisKey, millis), Long::sum);
+    }
+
+    public Supplier<Set<String>> getAllHashFields(String hashName) {
+        return fanOut(hashName, commands::hkeys, RedisBatch::union);
+    }
+
+    public Supplier<List<String>> getAllHashValues(String hashName) {
+        return fanOut(hashName, commands::hvals, (first, second) -> {
+            List<String> values = new ArrayList<>(first);
+            values.addAll(second);
+            return values;
+        });
+    }
+
+    public Supplier<Map<String, String>> getHashValuesAsPair(String hashName) {
+        return fanOut(hashName, commands::hgetAll, (first, second) -> {
+            Map<String, String> entries = new HashMap<>(first);
+            entries.putAll(second);
+            return entries;
+        });
+    }
+
+    public Supplier<Long> getHashLength(String hashName) {
+        return fanOut(hashName, commands::hlen, Long::sum);
+    }
+
+    public Supplier<Long> addToSet(String key, String... members) {
+        if (!keyLayout.isSharded(key)) {
+            return commands.sadd(keyLayout.key(key), members);
+        }
+        List<Response<Long>> replies = new ArrayList<>();
+        for (String member : members) {
+            replies.add(commands.sadd(keyLayout.key(key, member), member));
+        }
+        return sum(replies);
+    }
+
+    public Supplier<Long> removeFromSet(String key, String... members) {
+        if (!keyLayout.isSharded(key)) {
+            return commands.srem(keyLayout.key(key), members);
+        }
+        List<Response<Long>> replies = new ArrayList<>();
+        for (String member : members) {
+            replies.add(commands.srem(keyLayout.key(key, member), member));
+        }
+        return sum(replies);
+    }
+
+    public Supplier<Set<String>> getSetMembers(String key) {
+        return fanOut(key, commands::smembers, RedisBatch::union);
+    }
+
+    public Supplier<Long> getSetSize(String key) {
+        return fanOut(key, commands::scard, Long::sum);
+    }
+
+    public Response<Long> addToSortedSet(String key, double score, String member) {
+        return commands.zadd(keyLayout.key(key), score, member);
+    }
+
+    public Response<Long> removeFromSortedSet(String key, String... members) {
+        return commands.zrem(keyLayout.key(key), members);
+    }
+
+    public Response<Double> getSortedSetScore(String key, String member) {
+        return commands.zscore(keyLayout.key(key), member);
+    }
+
+    public Response<Long> getSortedSetSize(String key) {
+        return commands.zcard(keyLayout.key(key));
+    }
+
+    public Response<List<String>> getSortedSetRangeByScore(String key, double min, double max) {
+        return commands.zrangeByScore(keyLayout.key(key), min, max);
+    }
+
+    public Supplier<Boolean> exists(String key) {
+        return fanOut(key, commands::exists, Boolean::logicalOr);
+    }
+
+    public Supplier<Long> publish(String channel, String message) {
+        if (clusterClient != null) {
+            return publishAfterSync(channel, message);
+        }
+        return publisher.apply(channel, message);
+    }
+
+    /**
+     * Runs an already loaded script, the keys have to be resolved through the key layout by the caller.
+     */
+    Response<Object> evalsha(String sha, List<String> keys, List<String> args) {
+        return commands.evalsha(sha, keys, args);
+    }
+
+    /**
+     * Sends all queued commands and reads their replies.
+     */
+    public void sync() {
+        flush.run();
+        pendingPublishes.forEach(Runnable::run);
+        pendingPublishes.clear();
+    }
+
+    @Override
+    public void close() {
+        try {
+            owner.close();
+        } catch (IOException ignored) {
+            // pipelines do not throw on close
+        }
+    }
+
+    /**
+     * PUBLISH has no key a cluster pipeline could route it by, so it is sent on the client once the pipeline was synced.
+     * Any node forwards it to the whole cluster. Like a pipelined reply, a failure is only thrown when the reply is read,
+     * so it doesn't fail the commands that were already sent.
+     */
+    private Supplier<Long> publishAfterSync(String channel, String message) {
+        AtomicReference<Supplier<Long>> reply = new AtomicReference<>();
+        pendingPublishes.add(() -> {
+            try {
+                long receivers = clusterClient.publish(channel, message);
+                reply.set(() -> receivers);
+            } catch (RuntimeException e) {
+                reply.set(() -> {
+                    throw e;
+                });
+            }
+        });
+        return () -> reply.get().get();
+    }
+
+    /**
+     * Queues the command once per Redis key of the logical key and merges the replies.
+     */
+    private <T> Supplier<T> fanOut(String name, Function<String, Response<T>> command, BinaryOperator<T> merge) {
+        if (!keyLayout.isSharded(name)) {
+            return command.apply(keyLayout.key(name));
+        }
+        List<Response<T>> replies = keyLayout.keys(name).stream().map(command).toList();
+        return () -> replies.stream().map(Response::get).reduce(merge).orElseThrow();
+    }
+
+    /**
+     * Queues one HPEXPIRE per Redis key and counts the fields that got the time to live.
+     */
+    private Supplier<Long> expireFields(Map<String, List<String>> fieldsByKey, long millis) {
+        List<Response<List<Long>>> replies = new ArrayList<>();
+        fieldsByKey.forEach((key, fields) -> replies.add(commands.hpexpire(key, millis, fields.toArray(String[]::new))));
+        return () -> replies.stream().flatMap(reply -> reply.get().stream()).filter(Long.valueOf(1)::equals).count();
+    }
+
+    private static Supplier<Long> sum(List<Response<Long>> replies) {
+        return () -> replies.stream().mapToLong(Response::get).sum();
+    }
+
+    private static Set<String> union(Set<String> first, Set<String> second) {
+        Set<String> members = new HashSet<>(first);
+        members.addAll(second);
+        return members;
+    }
+}
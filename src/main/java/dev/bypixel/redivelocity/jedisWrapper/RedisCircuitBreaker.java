@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2025.
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ *  along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dev.bypixel.redivelocity.jedisWrapper;
+
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisException;
+
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Stops sending commands to a Redis that keeps failing. After enough consecutive connection failures or timeouts
+ * the breaker opens and commands fail right away. Once the open time has passed a single probe may half-open it,
+ * the probe's outcome then closes it again or keeps it open for another round.
+ */
+class RedisCircuitBreaker {
+
+    enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private final Consumer<State> stateListener;
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long openedAt;
+
+    RedisCircuitBreaker(int failureThreshold, long openMillis, Consumer<State> stateListener) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = Math.max(0, openMillis);
+        this.stateListener = stateListener;
+    }
+
+    State getState() {
+        return state.get();
+    }
+
+    boolean isClosed() {
+        return state.get() == State.CLOSED;
+    }
+
+    /**
+     * @throws RedisUnavailableException if the breaker doesn't let commands through right now
+     */
+    void checkClosed() {
+        if (!isClosed()) {
+            throw unavailable();
+        }
+    }
+
+    RedisUnavailableException unavailable() {
+        return new RedisUnavailableException("Redis is unavailable, the circuit breaker is " + state.get().name().toLowerCase(Locale.ROOT));
+    }
+
+    void recordSuccess() {
+        consecutiveFailures.set(0);
+        State previous = state.getAndSet(State.CLOSED);
+        if (previous != State.CLOSED) {
+            stateListener.accept(State.CLOSED);
+        }
+    }
+
+    /**
+     * Counts the failure if it means Redis can't be reached, errors returned by Redis itself don't trip the breaker.
+     */
+    void recordFailure(Throwable failure) {
+        if (!isOutage(failure)) {
+            return;
+        }
+        if (state.get() == State.HALF_OPEN || consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            open();
+        }
+    }
+
+    void open() {
+        openedAt = System.currentTimeMillis();
+        State previous = state.getAndSet(State.OPEN);
+        if (previous == State.CLOSED) {
+            stateListener.accept(State.OPEN);
+        }
+    }
+
+    /**
+     * Half-opens the breaker if it has been open long enough. Only the caller that gets true may probe Redis.
+     */
+    boolean tryHalfOpen() {
+        return System.currentTimeMillis() - openedAt >= openMillis && state.compareAndSet(State.OPEN, State.HALF_OPEN);
+    }
+
+    static boolean isOutage(Throwable failure) {
+        if (failure instanceof RedisUnavailableException) {
+            return false;
+        }
+        return failure instanceof JedisConnectionException
+                || failure instanceof TimeoutException
+                // no pooled connection could be created or borrowed in time
+                || (failure instanceof JedisException && (failure.getCause() instanceof JedisConnectionException || failure.getCause() instanceof NoSuchElementException));
+    }
+}
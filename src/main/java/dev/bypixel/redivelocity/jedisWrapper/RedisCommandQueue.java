@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2025.
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ *  along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dev.bypixel.redivelocity.jedisWrapper;
+
+import dev.bypixel.redivelocity.RediVelocityLogger;
+import redis.clients.jedis.UnifiedJedis;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Sends queued commands from a single writer thread. Everything that piled up while the previous
+ * pipeline was in flight goes out in the next one, so callers never wait for a pooled connection
+ * and concurrent commands share round trips.
+ */
+class RedisCommandQueue implements AutoCloseable {
+
+    private final UnifiedJedis client;
+    private final RedisKeyLayout keyLayout;
+    private final int maxBatchSize;
+    private final RediVelocityLogger rediVelocityLogger;
+    private final RedisCircuitBreaker circuitBreaker;
+    private final long commandTimeoutMillis;
+    private final BlockingQueue<PendingCommand<?>> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean running = true;
+    private volatile long flushStartedAt;
+    private volatile long averageFlushNanos;
+
+    RedisCommandQueue(String name, UnifiedJedis client, RedisKeyLayout keyLayout, int maxBatchSize, RedisCircuitBreaker circuitBreaker, long commandTimeoutMillis, RediVelocityLogger rediVelocityLogger) {
+        this.client = client;
+        this.keyLayout = keyLayout;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.circuitBreaker = circuitBreaker;
+        this.commandTimeoutMillis = commandTimeoutMillis;
+        this.rediVelocityLogger = rediVelocityLogger;
+
+        this.writer = new Thread(this::drain, "RediVelocity " + name);
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queues the command for the next pipeline. The future completes on the writer thread, or fails
+     * right away while the circuit breaker is open and with a {@link RedisCommandTimeoutException} once the command deadline passed.
+     * A command that is still queued at its deadline is taken out of the queue, so it is never sent after it failed.
+     */
+    <T> CompletableFuture<T> submit(Function<RedisBatch, Supplier<T>> command) {
+        PendingCommand<T> pending = new PendingCommand<>(command);
+        if (!circuitBreaker.isClosed()) {
+            pending.fail(circuitBreaker.unavailable());
+            return pending.future;
+        }
+        CompletableFuture.delayedExecutor(commandTimeoutMillis, TimeUnit.MILLISECONDS).execute(() -> expire(pending));
+        if (Thread.currentThread() == writer) {
+            // a callback chained on a future of this queue would otherwise wait for itself
+            flush(List.of(pending));
+        } else if (!running) {
+            pending.fail(new IllegalStateException("The Redis command queue has been closed"));
+        } else {
+            queue.add(pending);
+        }
+        return pending.future;
+    }
+
+    int size() {
+        return queue.size();
+    }
+
+    /**
+     * Moving average of the pipeline round trip time. A pipeline that is in flight for longer already counts,
+     * so a Redis that stopped answering shows up right away.
+     */
+    long getLatencyMillis() {
+        long startedAt = flushStartedAt;
+        long inFlight = startedAt == 0 ? 0 : System.nanoTime() - startedAt;
+        return TimeUnit.NANOSECONDS.toMillis(Math.max(averageFlushNanos, inFlight));
+    }
+
+    private void expire(PendingCommand<?> pending) {
+        if (pending.future.isDone()) {
+            return;
+        }
+        boolean sent = !pending.claim();
+        if (!sent) {
+            queue.remove(pending);
+        }
+        RedisCommandTimeoutException timeout = new RedisCommandTimeoutException(commandTimeoutMillis, sent);
+        circuitBreaker.recordFailure(timeout);
+        pending.fail(timeout);
+    }
+
+    /**
+     * Forgets the measured round trip time, e.g. after an outage whose timeouts would otherwise keep it high for many pipelines.
+     */
+    void resetLatency() {
+        averageFlushNanos = 0;
+    }
+
+    private void drain() {
+        List<PendingCommand<?>> commands = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingCommand<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                commands.add(first);
+                queue.drainTo(commands, maxBatchSize - 1);
+                flush(commands);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                rediVelocityLogger.sendErrorLogs("Failed to flush queued Redis commands: " + e.getMessage());
+            } finally {
+                commands.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingCommand<?>> commands) {
+        if (!circuitBreaker.isClosed()) {
+            // the breaker opened while these were queued
+            RedisUnavailableException unavailable = circuitBreaker.unavailable();
+            commands.forEach(command -> command.fail(unavailable));
+            return;
+        }
+        long startedAt = System.nanoTime();
+        flushStartedAt = startedAt;
+        try (RedisBatch batch = RedisBatch.pipelined(client, keyLayout)) {
+            for (PendingCommand<?> command : commands) {
+                // a command that expired while it was drained stays unsent
+                if (command.claim()) {
+                    command.queue(batch);
+                }
+            }
+            batch.sync();
+        } catch (RuntimeException e) {
+            circuitBreaker.recordFailure(e);
+            commands.forEach(command -> command.fail(e));
+            return;
+        } finally {
+            long elapsed = System.nanoTime() - startedAt;
+            averageFlushNanos = averageFlushNanos == 0 ? elapsed : (averageFlushNanos * 7 + elapsed) / 8;
+            flushStartedAt = 0;
+        }
+        circuitBreaker.recordSuccess();
+        commands.forEach(PendingCommand::complete);
+    }
+
+    /**
+     * Stops accepting commands and waits for the already queued ones to be sent.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        PendingCommand<?> leftover;
+        while ((leftover = queue.poll()) != null) {
+            leftover.fail(new IllegalStateException("The Redis command queue has been closed"));
+        }
+    }
+
+    private static final class PendingCommand<T> {
+        private final Function<RedisBatch, Supplier<T>> command;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private Supplier<T> reply;
+
+        private PendingCommand(Function<RedisBatch, Supplier<T>> command) {
+            this.command = command;
+        }
+
+        /**
+         * Decides once whether the command is sent or expires unsent.
+         */
+        private boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+
+        private void queue(RedisBatch batch) {
+            try {
+                reply = command.apply(batch);
+            } catch (RuntimeException e) {
+                fail(e);
+            }
+        }
+
+        private void complete() {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                future.complete(reply.get());
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        }
+
+        private void fail(Throwable throwable) {
+            future.completeExceptionally(throwable);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2025.
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ *  along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dev.bypixel.redivelocity.jedisWrapper;
+
+import lombok.Getter;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A queued command passed its deadline. It was either still waiting in the queue and is never sent,
+ * or already in flight and may still reach Redis.
+ */
+@Getter
+class RedisCommandTimeoutException extends TimeoutException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final boolean sent;
+
+    RedisCommandTimeoutException(long timeoutMillis, boolean sent) {
+        super("The Redis command " + (sent ? "got no reply" : "was not sent") + " within " + timeoutMillis + "ms");
+        this.sent = sent;
+    }
+}
@@ -23,59 +23,273 @@ import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 import lombok.Getter;
 import org.json.JSONObject;
+import org.apache.commons.pool2.impl.GenericObjectPool;
 import redis.clients.jedis.BinaryJedisPubSub;
-import redis.clients.jedis.JedisPool;
-import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.Connection;
+import redis.clients.jedis.ConnectionPoolConfig;
+import redis.clients.jedis.DefaultJedisClientConfig;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.JedisClientConfig;
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.RedisProtocol;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.UnifiedJedis;
+import redis.clients.jedis.csc.Cache;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
+import redis.clients.jedis.params.ScanParams;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeSet;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Singleton
 public class RedisController extends BinaryJedisPubSub implements Runnable {
 
+    public static final String RV_PLAYERS_NAME_INDEX = "rv-players-name-index";
+    private static final String RV_PROXY_MEMBERS_PREFIX = "rv-proxy-members-";
+    public static final String RV_SERVER_PLAYERS = "rv-server-players";
+    public static final String RV_PROXY_LEADER_TOKEN = "rv-proxy-leader-token";
+    public static final String RV_PROXY_HEARTBEAT = "rv-proxy-heartbeat";
+    public static final String RV_PROXY_SERVER_PLAYERS = "rv-proxy-server-players";
+    public static final String RV_PROXY_COUNTER_DRIFT = "rv-proxy-counter-drift";
+    private static final List<String> PLAYER_COUNTER_KEYS = List.of("rv-proxy-players", "rv-global-playercount", RV_SERVER_PLAYERS, RV_PROXY_SERVER_PLAYERS);
+    private static final long HEALTH_PROBE_INTERVAL_MILLIS = 1000;
+    private static final Path JOURNAL_DIRECTORY = Path.of("plugins/redivelocity/journal");
+
     private final RediVelocityLogger rediVelocityLogger;
     @Getter
-    private JedisPool jedisPool;
+    private UnifiedJedis client;
+    @Getter
+    private final RedisKeyLayout keyLayout;
     private final AtomicBoolean isConnectionBroken = new AtomicBoolean(true);
     private final AtomicBoolean isConnecting = new AtomicBoolean(false);
+    private final RedisScriptRegistry scriptRegistry;
+    private final int scanPageSize;
+    private final KeySchemaValidator keySchemaValidator;
+    private final AtomicBoolean isValidatingKeySchema = new AtomicBoolean(false);
+    private final boolean warmupPool;
+    private final List<JedisPooled> replicaPools = new ArrayList<>();
+    private final AtomicInteger replicaCursor = new AtomicInteger();
+    private final RedisCommandQueue commandQueue;
+    private final List<RedisCommandQueue> replicaQueues = new ArrayList<>();
+    private final RedisNearCache nearCache;
+    @Getter
+    private final RedisExecutor executor;
+    private final RedisPlayerSequencer playerSequencer;
+    private final RedisCircuitBreaker circuitBreaker;
+    private final long commandTimeoutMillis;
+    private final List<Runnable> recoveryListeners = new CopyOnWriteArrayList<>();
+    private final RedisJournal journal;
+    private final int journalReplayBatchSize;
+    private volatile Thread healthProbe;
+    private volatile boolean probing = true;
+    private volatile long playerEntryTtlMillis;
 
     @Inject
     public RedisController(RediVelocityLogger rediVelocityLogger) { // Constructor directly injects RediVelocity
         this.rediVelocityLogger = rediVelocityLogger;
+        this.scriptRegistry = new RedisScriptRegistry(rediVelocityLogger);
 
         ConfigLoader configLoader = new ConfigLoader(rediVelocityLogger);
         configLoader.load();
 
         Config config = configLoader.getConfig();
+        this.scanPageSize = Math.max(1, config.getRedis().getScanPageSize());
+        this.keySchemaValidator = new KeySchemaValidator(rediVelocityLogger, config.getRedis().isRepairKeySchema(), scanPageSize);
 
-        JedisPoolConfig jConfig = new JedisPoolConfig();
-        int maxConnections = 10;
+        this.warmupPool = config.getRedis().getPool().isWarmup();
+        this.executor = new RedisExecutor(config.getRedis().getExecutor().getMaxPendingTasks());
+        this.playerSequencer = new RedisPlayerSequencer(executor);
 
-        jConfig.setMaxTotal(maxConnections);
-        jConfig.setMaxIdle(maxConnections);
-        jConfig.setMinIdle(1);
-        jConfig.setBlockWhenExhausted(true);
+        Config.RedisCircuitBreakerConfig breakerConfig = config.getRedis().getCircuitBreaker();
+        this.commandTimeoutMillis = breakerConfig.getCommandTimeoutMillis();
+        this.circuitBreaker = new RedisCircuitBreaker(breakerConfig.getFailureThreshold(), breakerConfig.getOpenMillis(), this::onCircuitStateChange);
+
+        Config.RedisJournalConfig journalConfig = config.getRedis().getJournal();
+        this.journal = journalConfig.isEnabled() ? createJournal(journalConfig) : null;
+        this.journalReplayBatchSize = Math.max(1, journalConfig.getReplayBatchSize());
+
+        Config.RedisClusterConfig clusterConfig = config.getRedis().getCluster();
+        this.keyLayout = clusterConfig.isEnabled() ? RedisKeyLayout.cluster(clusterConfig.getPlayerShards()) : RedisKeyLayout.standalone();
+
+        Config.RedisNearCacheConfig nearCacheConfig = config.getRedis().getNearCache();
+        this.nearCache = nearCacheConfig.isEnabled() ? new RedisNearCache(keyLayout, nearCacheConfig.getMaxSize()) : null;
+        Cache cache = nearCache != null ? nearCache.getCache() : null;
 
         // Initialize Redis connection
         try {
-            String password = config.getRedis().getPassword();
-            if (password.isEmpty()) {
-                this.jedisPool = new JedisPool(jConfig, config.getRedis().getHost(), config.getRedis().getPort());
-            } else {
-                this.jedisPool = new JedisPool(jConfig, config.getRedis().getHost(), config.getRedis().getPort(), 2000, password);
-            }
+            this.client = clusterConfig.isEnabled() ? createCluster(config.getRedis(), cache) :
+                    createPool(config.getRedis(), new HostAndPort(config.getRedis().getHost(), config.getRedis().getPort()), cache);
         } catch (Exception e) {
             rediVelocityLogger.sendErrorLogs("Failed to initialize RedisController: " + e.getMessage());
         }
 
+        if (clusterConfig.isEnabled()) {
+            if (!config.getRedis().getReplicas().isEmpty()) {
+                rediVelocityLogger.sendErrorLogs("Redis replicas are ignored in cluster mode, the cluster serves all reads from its masters.");
+            }
+        } else {
+            for (String replica : config.getRedis().getReplicas()) {
+                try {
+                    replicaPools.add(createPool(config.getRedis(), HostAndPort.from(replica), null));
+                } catch (Exception e) {
+                    rediVelocityLogger.sendErrorLogs("Failed to initialize Redis replica " + replica + ": " + e.getMessage());
+                }
+            }
+        }
+        if (!replicaPools.isEmpty()) {
+            rediVelocityLogger.sendLogs("Routing stale-tolerant reads to " + replicaPools.size() + " Redis replicas.");
+        }
+
+        int pipelineSize = config.getRedis().getAsyncPipelineSize();
+        this.commandQueue = new RedisCommandQueue("Redis writer", client, keyLayout, pipelineSize, circuitBreaker, commandTimeoutMillis, rediVelocityLogger);
+        for (int i = 0; i < replicaPools.size(); i++) {
+            // a replica that is down only sends its reads to the primary, it doesn't put the proxy into degraded mode
+            RedisCircuitBreaker replicaBreaker = new RedisCircuitBreaker(breakerConfig.getFailureThreshold(), breakerConfig.getOpenMillis(), state -> {
+            });
+            replicaQueues.add(new RedisCommandQueue("Redis replica reader #" + i, replicaPools.get(i), keyLayout, pipelineSize, replicaBreaker, commandTimeoutMillis, rediVelocityLogger));
+        }
         // Attempt to connect to Redis server
         run();
     }
 
+    private RedisJournal createJournal(Config.RedisJournalConfig journalConfig) {
+        try {
+            return new RedisJournal(JOURNAL_DIRECTORY, journalConfig.getSegmentSizeKb() * 1024, journalConfig.getMaxSegments(), rediVelocityLogger);
+        } catch (IOException e) {
+            rediVelocityLogger.sendErrorLogs("Failed to open the Redis journal, writes during a Redis outage will be lost: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private JedisPooled createPool(Config.RedisConfig redisConfig, HostAndPort hostAndPort, Cache cache) {
+        if (cache != null) {
+            return new JedisPooled(hostAndPort, createClientConfig(redisConfig, true), cache, createPoolConfig(redisConfig.getPool()));
+        }
+        return new JedisPooled(hostAndPort, createClientConfig(redisConfig, false), createPoolConfig(redisConfig.getPool()));
+    }
+
+    private JedisCluster createCluster(Config.RedisConfig redisConfig, Cache cache) {
+        Config.RedisClusterConfig clusterConfig = redisConfig.getCluster();
+        Set<HostAndPort> nodes = new HashSet<>();
+        clusterConfig.getNodes().forEach(node -> nodes.add(HostAndPort.from(node)));
+        if (nodes.isEmpty()) {
+            nodes.add(new HostAndPort(redisConfig.getHost(), redisConfig.getPort()));
+        }
+
+        rediVelocityLogger.sendLogs("Using Redis Cluster with " + keyLayout.getShardCount() + " player shards.");
+        if (cache != null) {
+            Duration maxRetryDuration = Duration.ofMillis((long) redisConfig.getPool().getTimeoutMillis() * clusterConfig.getMaxAttempts());
+            return new JedisCluster(nodes, createClientConfig(redisConfig, true), cache, clusterConfig.getMaxAttempts(), maxRetryDuration, createPoolConfig(redisConfig.getPool()));
+        }
+        return new JedisCluster(nodes, createClientConfig(redisConfig, false), clusterConfig.getMaxAttempts(), createPoolConfig(redisConfig.getPool()));
+    }
+
+    private ConnectionPoolConfig createPoolConfig(Config.RedisPoolConfig poolConfig) {
+        ConnectionPoolConfig jConfig = new ConnectionPoolConfig();
+        jConfig.setMaxTotal(poolConfig.getMaxTotal());
+        jConfig.setMaxIdle(poolConfig.getMaxIdle());
+        jConfig.setMinIdle(poolConfig.getMinIdle());
+        jConfig.setBlockWhenExhausted(true);
+        jConfig.setMaxWait(Duration.ofMillis(poolConfig.getMaxWaitMillis()));
+        jConfig.setTestWhileIdle(true);
+        jConfig.setTimeBetweenEvictionRuns(Duration.ofMillis(poolConfig.getEvictionIntervalMillis()));
+        jConfig.setMinEvictableIdleDuration(Duration.ofMillis(poolConfig.getMinEvictableIdleMillis()));
+        jConfig.setJmxEnabled(false);
+        return jConfig;
+    }
+
+    private JedisClientConfig createClientConfig(Config.RedisConfig redisConfig, boolean clientSideCaching) {
+        DefaultJedisClientConfig.Builder clientConfig = DefaultJedisClientConfig.builder()
+                .timeoutMillis(redisConfig.getPool().getTimeoutMillis())
+                .ssl(redisConfig.isUseSsl())
+                .clientName("RediVelocity");
+        if (clientSideCaching) {
+            // invalidation messages are pushed on the same connection, which needs RESP3 (Redis 6+)
+            clientConfig.protocol(RedisProtocol.RESP3);
+        }
+
+        String password = redisConfig.getPassword();
+        if (password != null && !password.isEmpty()) {
+            String username = redisConfig.getUsername();
+            // plain AUTH <password> logs in as the default user and keeps Redis < 6 working
+            if (username != null && !username.isEmpty() && !username.equals("default")) {
+                clientConfig.user(username);
+            }
+            clientConfig.password(password);
+        }
+
+        return clientConfig.build();
+    }
+
+    /**
+     * The connection pools of the primary, one per master node in cluster mode.
+     */
+    private Collection<? extends GenericObjectPool<Connection>> getPools() {
+        if (client instanceof JedisCluster cluster) {
+            return cluster.getClusterNodes().values();
+        }
+        if (client instanceof JedisPooled pooled) {
+            return List.of(pooled.getPool());
+        }
+        return List.of();
+    }
+
+    public RedisPoolStats getPoolStats() {
+        return RedisPoolStats.of(getPools());
+    }
+
+    public RedisExecutorStats getExecutorStats() {
+        return executor.getStats();
+    }
+
+    /**
+     * Commands waiting for the next pipeline of the writer thread.
+     */
+    public int getCommandQueueSize() {
+        return commandQueue.size();
+    }
+
+    /**
+     * Round trip time of the writer pipeline, see {@link RedisCommandQueue#getLatencyMillis()}.
+     */
+    public long getWriteLatencyMillis() {
+        return commandQueue.getLatencyMillis();
+    }
+
+    /**
+     * Usage of the near cache, or null if it is disabled.
+     */
+    public RedisCacheStats getNearCacheStats() {
+        return nearCache != null ? nearCache.getStats() : null;
+    }
+
     @Override
     public void run() {
         if (!isConnectionBroken.get() || isConnecting.get()) {
@@ -84,27 +298,162 @@ public class RedisController extends BinaryJedisPubSub implements Runnable {
         rediVelocityLogger.sendLogs("Connecting to Redis server...");
         isConnecting.set(true);
 
-        CompletableFuture.runAsync(() -> {
-            try (var ignored = jedisPool.getResource()) {
+        executor.run(() -> {
+            try {
+                scriptRegistry.loadAll(client, keyLayout.key("rv-proxies"));
                 isConnectionBroken.set(false);
                 rediVelocityLogger.sendConsoleMessage("<green>Successfully connected to Redis server.</green>");
             } catch (Exception e) {
                 isConnecting.set(false);
                 isConnectionBroken.set(true);
                 rediVelocityLogger.sendErrorLogs("Connection to Redis server has failed: " + e.getMessage());
+                circuitBreaker.open();
+                return;
+            }
+
+            if (warmupPool) {
+                try {
+                    int idleConnections = 0;
+                    for (GenericObjectPool<Connection> pool : getPools()) {
+                        pool.preparePool();
+                        idleConnections += pool.getNumIdle();
+                    }
+                    rediVelocityLogger.sendLogs("Warmed up " + idleConnections + " Redis connections.");
+                } catch (Exception e) {
+                    rediVelocityLogger.sendErrorLogs("Failed to warm up the Redis connection pool: " + e.getMessage());
+                }
             }
         });
     }
 
+    /**
+     * False while the circuit breaker is open, Redis calls fail right away then and callers should fall back to local data.
+     */
+    public boolean isAvailable() {
+        return circuitBreaker.isClosed();
+    }
+
+    /**
+     * True if writes and events that can't reach Redis are kept in the journal and published later.
+     */
+    public boolean isJournaling() {
+        return journal != null;
+    }
+
+    /**
+     * Runs the listener off the calling thread whenever Redis becomes available again after an outage.
+     */
+    public void addRecoveryListener(Runnable listener) {
+        recoveryListeners.add(listener);
+    }
+
+    private void onCircuitStateChange(RedisCircuitBreaker.State state) {
+        // the latency measured before the change says nothing about the connection after it
+        commandQueue.resetLatency();
+        if (state == RedisCircuitBreaker.State.OPEN) {
+            isConnectionBroken.set(true);
+            rediVelocityLogger.sendErrorLogs("Lost the connection to Redis, running in degraded mode until it's back.");
+        } else if (state == RedisCircuitBreaker.State.CLOSED) {
+            isConnectionBroken.set(false);
+            isConnecting.set(false);
+            rediVelocityLogger.sendConsoleMessage("<green>Redis is available again, re-syncing the state of this proxy.</green>");
+            recoveryListeners.forEach(executor::run);
+        }
+    }
+
+    /**
+     * Starts the background probe that closes the circuit breaker again and replays the journal.
+     * It is started once the controller is constructed, so the probe thread never sees it half initialized.
+     */
+    public synchronized void startHealthProbe() {
+        if (healthProbe == null && probing) {
+            healthProbe = executor.startDedicated("Redis health probe", this::probe);
+        }
+    }
+
+    /**
+     * Half-opens the circuit breaker once its open time passed and closes it again if Redis answers.
+     * The scripts are loaded again as well, Redis may have been restarted without them.
+     * While Redis is available the journal is replayed from here, so a failed replay is retried on the next round.
+     */
+    private void probe() {
+        while (probing) {
+            try {
+                Thread.sleep(HEALTH_PROBE_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (circuitBreaker.tryHalfOpen()) {
+                try {
+                    client.ping();
+                    scriptRegistry.loadAll(client, keyLayout.key("rv-proxies"));
+                    circuitBreaker.recordSuccess();
+                } catch (Exception e) {
+                    circuitBreaker.open();
+                    continue;
+                }
+            }
+            if (journal != null && circuitBreaker.isClosed() && journal.hasPending()) {
+                replayJournal();
+            }
+        }
+    }
+
+    /**
+     * Sends the journaled entries to Redis in pipelines of the configured batch size, waiting for each pipeline
+     * before the next one so a long outage doesn't flood Redis. Writes made meanwhile are journaled behind them.
+     * The entries sent are recorded per segment, so a replay that fails halfway continues after the last pipeline
+     * that went through. Only the entries of the pipeline that failed may reach Redis twice.
+     */
+    private void replayJournal() {
+        int replayed = 0;
+        try {
+            List<Path> segments;
+            while (!(segments = journal.nextSegments()).isEmpty()) {
+                for (Path segment : segments) {
+                    List<RedisJournal.Entry> entries = RedisJournal.read(segment, rediVelocityLogger);
+                    int skipped = Math.min(entries.size(), journal.replayedEntries(segment));
+                    for (int from = skipped; from < entries.size(); from += journalReplayBatchSize) {
+                        int to = Math.min(entries.size(), from + journalReplayBatchSize);
+                        List<RedisJournal.Entry> chunk = entries.subList(from, to);
+                        await(executeBatchAsync(batch -> chunk.forEach(entry -> entry.apply(batch))));
+                        journal.markReplayed(segment, to);
+                    }
+                    journal.finishSegment(segment);
+                    replayed += entries.size() - skipped;
+                }
+            }
+        } catch (Exception e) {
+            journal.stopReplay();
+            rediVelocityLogger.sendErrorLogs("Replaying the Redis journal failed, retrying later: " + e.getMessage());
+        }
+        if (replayed > 0) {
+            rediVelocityLogger.sendLogs("Replayed " + replayed + " journaled Redis writes.");
+        }
+    }
+
     public void shutdown() {
         rediVelocityLogger.sendLogs("Shutting down Redis connection...");
-        if (jedisPool != null) {
-            jedisPool.close();
+        synchronized (this) {
+            probing = false;
+            if (healthProbe != null) {
+                healthProbe.interrupt();
+            }
+        }
+        commandQueue.close();
+        replicaQueues.forEach(RedisCommandQueue::close);
+        if (journal != null) {
+            journal.close();
+        }
+        executor.close();
+        if (client != null) {
+            client.close();
         }
+        replicaPools.forEach(JedisPooled::close);
         rediVelocityLogger.sendLogs("Redis connection has been shut down.");
     }
 
-    public void sendPostLoginMessage(String event, String proxyId, String username, String useruuid, String userip, String channel) {
+    public String createPostLoginMessage(String event, String proxyId, String username, String useruuid, String userip) {
         JSONObject jsonObject = new JSONObject();
         jsonObject.put("action", event);
         jsonObject.put("proxy", proxyId);
@@ -112,16 +461,10 @@ public class RedisController extends BinaryJedisPubSub implements Runnable {
         jsonObject.put("uuid", useruuid);
         jsonObject.put("address", userip);
         jsonObject.put("timestamp", System.currentTimeMillis());
-        String jsonString = jsonObject.toString();
-
-        try (var jedis = jedisPool.getResource()) {
-            jedis.publish(channel, jsonString);
-        } catch (Exception e) {
-            rediVelocityLogger.sendErrorLogs("Failed to send post-login Redis message: " + e.getMessage());
-        }
+        return jsonObject.toString();
     }
 
-    public void sendServerSwitchMessage(String event, String proxyId, String username, String useruuid, String clientbrand, String userip, String serverName, String previousServer, String channel) {
+    public String createServerSwitchMessage(String event, String proxyId, String username, String useruuid, String clientbrand, String userip, String serverName, String previousServer) {
         JSONObject jsonObject = new JSONObject();
         jsonObject.put("action", event);
         jsonObject.put("proxy", proxyId);
@@ -132,17 +475,10 @@ public class RedisController extends BinaryJedisPubSub implements Runnable {
         jsonObject.put("timestamp", System.currentTimeMillis());
         jsonObject.put("server", serverName);
         jsonObject.put("previousServer", previousServer);
-
-        String jsonString = jsonObject.toString();
-
-        try (var jedis = jedisPool.getResource()) {
-            jedis.publish(channel, jsonString);
-        } catch (Exception e) {
-            rediVelocityLogger.sendErrorLogs("Failed to send server switch Redis message: " + e.getMessage());
-        }
+        return jsonObject.toString();
     }
 
-    public void sendJsonMessage(String event, String proxyId, String username, String useruuid, String clientbrand, String userip, String channel) {
+    public String createJsonMessage(String event, String proxyId, String username, String useruuid, String clientbrand, String userip) {
         JSONObject jsonObject = new JSONObject();
         jsonObject.put("action", event);
         jsonObject.put("proxy", proxyId);
@@ -151,113 +487,801 @@ public class RedisController extends BinaryJedisPubSub implements Runnable {
         jsonObject.put("clientbrand", clientbrand);
         jsonObject.put("address", userip);
         jsonObject.put("timestamp", System.currentTimeMillis());
-        String jsonString = jsonObject.toString();
+        return jsonObject.toString();
+    }
+
+    public void sendPostLoginMessage(String event, String proxyId, String username, String useruuid, String userip, String channel) {
+        String jsonString = createPostLoginMessage(event, proxyId, username, useruuid, userip);
 
-        try (var jedis = jedisPool.getResource()) {
-            jedis.publish(channel, jsonString);
+        try {
+            await(publishAsync(channel, jsonString));
+        } catch (Exception e) {
+            rediVelocityLogger.sendErrorLogs("Failed to send post-login Redis message: " + e.getMessage());
         }
     }
 
-    public void setHashField(String hashName, String fieldName, String value) {
-        try (var jedis = jedisPool.getResource()) {
-            String type = jedis.type(hashName);
-            if (!"hash".equals(type)) {
-                if ("none".equals(type)) {
-                    jedis.hset(hashName, fieldName, value);
-                } else {
-                    rediVelocityLogger.sendErrorLogs("Error: Key " + hashName + " doesn't hold a hash. It holds a " + type + ".");
+    public void sendServerSwitchMessage(String event, String proxyId, String username, String useruuid, String clientbrand, String userip, String serverName, String previousServer, String channel) {
+        String jsonString = createServerSwitchMessage(event, proxyId, username, useruuid, clientbrand, userip, serverName, previousServer);
+
+        try {
+            await(publishAsync(channel, jsonString));
+        } catch (Exception e) {
+            rediVelocityLogger.sendErrorLogs("Failed to send server switch Redis message: " + e.getMessage());
+        }
+    }
+
+    public void sendJsonMessage(String event, String proxyId, String username, String useruuid, String clientbrand, String userip, String channel) {
+        String jsonString = createJsonMessage(event, proxyId, username, useruuid, clientbrand, userip);
+
+        await(publishAsync(channel, jsonString));
+    }
+
+    public CompletableFuture<Long> publishAsync(String channel, String message) {
+        return journaled(batch -> batch.publish(channel, message), RedisJournal.Operation.PUBLISH, channel, message);
+    }
+
+    /**
+     * Sends a write through the writer pipeline, or appends it to the journal while Redis can't be reached
+     * or older journal entries still wait for replay. A journaled write completes with null.
+     */
+    private <T> CompletableFuture<T> journaled(Function<RedisBatch, Supplier<T>> command, RedisJournal.Operation operation, String... args) {
+        if (journal == null) {
+            return commandQueue.submit(command);
+        }
+        if (journal.append(!circuitBreaker.isClosed(), operation, args)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return commandQueue.submit(command).exceptionallyCompose(e -> {
+            Throwable cause = unwrap(e);
+            if (isUnsent(cause) || (operation.isIdempotent() && RedisCircuitBreaker.isOutage(cause))) {
+                if (journal.append(true, operation, args)) {
+                    return CompletableFuture.completedFuture(null);
                 }
-            } else {
-                jedis.hset(hashName, fieldName, value);
             }
+            return CompletableFuture.failedFuture(cause);
+        });
+    }
+
+    /**
+     * Whether a failed command surely never reached Redis. One that failed in flight may have been applied anyway,
+     * so it is only journaled if sending it again does no harm, e.g. a PUBLISH would be delivered twice.
+     */
+    private static boolean isUnsent(Throwable failure) {
+        return failure instanceof RedisUnavailableException
+                || (failure instanceof RedisCommandTimeoutException timeout && !timeout.isSent());
+    }
+
+    /**
+     * Opens a new batch on a pooled connection. The caller has to close it.
+     */
+    public RedisBatch batch() {
+        circuitBreaker.checkClosed();
+        return RedisBatch.pipelined(client, keyLayout);
+    }
+
+    /**
+     * Queues the given operations and sends them to Redis in a single round trip.
+     */
+    public void executeBatch(Consumer<RedisBatch> operations) {
+        try (RedisBatch batch = batch()) {
+            operations.accept(batch);
+            batch.sync();
         }
     }
 
-    public void deleteHashField(String hashName, String fieldName) {
-        try (var jedis = jedisPool.getResource()) {
-            jedis.hdel(hashName, fieldName);
+    /**
+     * Queues the given operations for the shared writer pipeline. The future completes once they were sent.
+     */
+    public CompletableFuture<Void> executeBatchAsync(Consumer<RedisBatch> operations) {
+        return commandQueue.submit(batch -> {
+            operations.accept(batch);
+            return () -> null;
+        });
+    }
+
+    public static String getProxyMembersKey(String proxyId) {
+        return RV_PROXY_MEMBERS_PREFIX + proxyId;
+    }
+
+    /**
+     * Registers a player that joined this proxy and publishes the event, all in one atomic script.
+     * A null message registers the player without publishing anything.
+     */
+    public CompletableFuture<Void> loginPlayerAsync(String uuid, String username, String proxyId, String address, String channel, String message) {
+        List<String> keys = List.of(
+                keyLayout.playerKey("rv-players-proxy", uuid),
+                keyLayout.playerKey("rv-players-name", uuid),
+                keyLayout.playerKey("rv-players-ip", uuid),
+                keyLayout.playerKey(RV_PLAYERS_NAME_INDEX, uuid),
+                keyLayout.playerKey(getProxyMembersKey(proxyId), uuid),
+                keyLayout.playerKey("rv-players-server", uuid)
+        );
+        return runPlayerTransition(RedisScript.PLAYER_LOGIN, uuid, keys,
+                List.of(uuid, username, username.toLowerCase(Locale.ROOT), proxyId, address, channel, message != null ? message : "", String.valueOf(playerEntryTtlMillis)),
+                reply -> {
+                    String previousProxy = (String) ((List<?>) reply).get(0);
+                    String previousServer = (String) ((List<?>) reply).get(1);
+                    return proxyId.equals(previousProxy) ? null : counterMove(previousProxy, previousServer, proxyId, null);
+                });
+    }
+
+    /**
+     * Unregisters a player that left this proxy and publishes the event, all in one atomic script.
+     * A null message unregisters the player without publishing anything.
+     */
+    public CompletableFuture<Void> disconnectPlayerAsync(String uuid, String username, String proxyId, String channel, String message) {
+        List<String> keys = List.of(
+                keyLayout.playerKey("rv-players-proxy", uuid),
+                keyLayout.playerKey("rv-players-name", uuid),
+                keyLayout.playerKey(RV_PLAYERS_NAME_INDEX, uuid),
+                keyLayout.playerKey(getProxyMembersKey(proxyId), uuid),
+                keyLayout.playerKey("rv-players-server", uuid),
+                keyLayout.playerKey("rv-players-lastseen", uuid)
+        );
+        return runPlayerTransition(RedisScript.PLAYER_DISCONNECT, uuid, keys,
+                List.of(uuid, username.toLowerCase(Locale.ROOT), proxyId, String.valueOf(System.currentTimeMillis()), channel, message != null ? message : ""),
+                reply -> {
+                    if (!Long.valueOf(1).equals(((List<?>) reply).get(0))) {
+                        return null;
+                    }
+                    return counterMove(proxyId, (String) ((List<?>) reply).get(1), null, null);
+                });
+    }
+
+    /**
+     * Records the server a player switched to and publishes the event, in order with the player's login and disconnect.
+     */
+    public CompletableFuture<Void> switchPlayerServerAsync(String uuid, String proxyId, String serverName, String channel, String message) {
+        return switchPlayerServerAsync(uuid, proxyId, serverName, channel, List.of(message));
+    }
+
+    /**
+     * Records the latest of several coalesced server switches and publishes the given events in the same script,
+     * an empty list only records the server. The server player counters follow the switch.
+     */
+    public CompletableFuture<Void> switchPlayerServerAsync(String uuid, String proxyId, String serverName, String channel, List<String> messages) {
+        List<String> keys = List.of(
+                keyLayout.playerKey("rv-players-server", uuid),
+                keyLayout.playerKey("rv-players-proxy", uuid)
+        );
+        List<String> args = new ArrayList<>(List.of(uuid, proxyId, serverName, channel, String.valueOf(playerEntryTtlMillis)));
+        args.addAll(messages);
+        return runPlayerTransition(RedisScript.PLAYER_SERVER_SWITCH, uuid, keys, args, reply -> {
+            String previousServer = (String) ((List<?>) reply).get(1);
+            if (!Long.valueOf(1).equals(((List<?>) reply).get(0)) || serverName.equals(previousServer)) {
+                return null;
+            }
+            return counterMove(proxyId, previousServer, proxyId, serverName);
+        });
+    }
+
+    /**
+     * Unregisters every player of a dead proxy like a disconnect would, shard by shard through the proxy's member set.
+     * The cost depends on the number of players of that proxy, not on the size of the network.
+     * The counters are updated in the scripts on a single node and from their replies in cluster mode.
+     * Nothing is removed once the proxy sent a heartbeat after the deadline. That is checked before the first shard
+     * and again inside the script on a single node. In cluster mode the heartbeats live in another slot than the
+     * player shards, so they are read again before every shard instead. Two proxies running this at the same time
+     * only remove every player once, each shard is cleaned in one script.
+     *
+     * @return the number of removed players, or -1 if the proxy turned out to be alive
+     */
+    public long cleanupProxyMembers(String deadProxyId, long deadline) {
+        List<String> keys = new ArrayList<>(List.of(getProxyMembersKey(deadProxyId), "rv-players-proxy", "rv-players-name",
+                RV_PLAYERS_NAME_INDEX, "rv-players-server", "rv-players-lastseen"));
+        if (!keyLayout.isCluster()) {
+            keys.addAll(List.of("rv-global-playercount", RV_SERVER_PLAYERS, RV_PROXY_SERVER_PLAYERS, RV_PROXY_HEARTBEAT));
+        }
+        List<String> args = List.of(deadProxyId, String.valueOf(System.currentTimeMillis()), String.valueOf(deadline));
+
+        long removedPlayers = 0;
+        boolean alive = false;
+        Map<String, Long> serverCounts = new HashMap<>();
+        for (int shard = 0; shard < keyLayout.getShardCount(); shard++) {
+            if ((shard == 0 || keyLayout.isCluster()) && !isProxyDead(deadProxyId, deadline)) {
+                alive = true;
+                break;
+            }
+            Object reply = runShardScript(RedisScript.CLEANUP_PROXY_MEMBERS, shard, keys, args);
+            if (Long.valueOf(-1).equals(((List<?>) reply).get(0))) {
+                alive = true;
+                break;
+            }
+            removedPlayers += (Long) ((List<?>) reply).get(0);
+            List<?> servers = (List<?>) ((List<?>) reply).get(1);
+            for (int i = 0; i + 1 < servers.size(); i += 2) {
+                serverCounts.merge((String) servers.get(i), (Long) servers.get(i + 1), Long::sum);
+            }
+        }
+
+        // the shards cleaned before the proxy came back still need their counters updated
+        if (keyLayout.isCluster() && removedPlayers > 0) {
+            long removed = removedPlayers;
+            executeBatch(batch -> {
+                batch.incrementString("rv-global-playercount", -removed);
+                serverCounts.forEach((server, count) -> {
+                    batch.incrementHashField(RV_SERVER_PLAYERS, server, -count);
+                    batch.deleteHashField(RV_PROXY_SERVER_PLAYERS, getProxyServerField(deadProxyId, server));
+                });
+            });
         }
+        return alive ? -1 : removedPlayers;
     }
 
-    public void deleteHash(String hashName) {
-        try (var jedis = jedisPool.getResource()) {
-            jedis.del(hashName);
+    /**
+     * Whether the proxy sent no heartbeat after the deadline.
+     */
+    private boolean isProxyDead(String proxyId, long deadline) {
+        Double lastHeartbeat = await(readAsync(ReadConsistency.PRIMARY, batch -> batch.getSortedSetScore(RV_PROXY_HEARTBEAT, proxyId)));
+        return lastHeartbeat == null || lastHeartbeat < deadline;
+    }
+
+    /**
+     * Gives the player entries written from now on a time to live, so they expire unless {@link #renewPlayerEntriesAsync}
+     * keeps them alive. Stays disabled if Redis can't expire single hash fields, which needs Redis 7.4 or newer.
+     *
+     * @return whether the expiry is enabled
+     */
+    public boolean enablePlayerEntryExpiry(long ttlMillis) {
+        try {
+            guarded(() -> client.hpexpire(keyLayout.key("rv-players-expiry-probe"), ttlMillis, "probe"));
+        } catch (JedisDataException e) {
+            rediVelocityLogger.sendErrorLogs("Player entry expiry needs Redis 7.4 or newer, it stays disabled: " + e.getMessage());
+            return false;
         }
+        playerEntryTtlMillis = ttlMillis;
+        return true;
     }
 
-    public Map<String, String> getHashValuesAsPair(String hashName) {
-        Map<String, String> values = new HashMap<>();
-        try (var jedis = jedisPool.getResource()) {
-            Set<String> keys = jedis.hkeys(hashName);
-            for (String key : keys) {
-                values.put(key, jedis.hget(hashName, key));
+    /**
+     * Renews the time to live of the entries of some players of the given proxy and of the proxy's member set, in one round trip.
+     *
+     * @param players the lowercase usernames of the players by their UUID
+     */
+    public CompletableFuture<Void> renewPlayerEntriesAsync(String proxyId, Map<String, String> players) {
+        long ttlMillis = playerEntryTtlMillis;
+        String[] uuids = players.keySet().toArray(String[]::new);
+        return executeBatchAsync(batch -> {
+            batch.expireHashFields("rv-players-proxy", ttlMillis, uuids);
+            batch.expireHashFields("rv-players-name", ttlMillis, uuids);
+            batch.expireHashFields("rv-players-server", ttlMillis, uuids);
+            batch.expirePlayerHashFields(RV_PLAYERS_NAME_INDEX, ttlMillis, players);
+            batch.expire(getProxyMembersKey(proxyId), ttlMillis);
+        });
+    }
+
+    /**
+     * Field of a server in rv-proxy-server-players, which counts the players of every proxy on every server.
+     */
+    public static String getProxyServerField(String proxyId, String serverName) {
+        return proxyId + ":" + serverName;
+    }
+
+    /**
+     * Runs a player script in order with the other side effects of the player. The counters live in another slot
+     * than the player state in cluster mode, so they are moved by update_player_counters.lua once the script replied,
+     * on a single node as well. A null counter move leaves them as they are.
+     */
+    private CompletableFuture<Void> runPlayerTransition(RedisScript script, String uuid, List<String> keys, List<String> args, Function<Object, List<String>> counterMove) {
+        return playerSequencer.submit(uuid, () -> evalAsync(script, keys, args).thenCompose(reply -> {
+            List<String> move = counterMove.apply(reply);
+            if (move == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return runScriptAsync(RedisScript.UPDATE_PLAYER_COUNTERS, PLAYER_COUNTER_KEYS, move).thenApply(counted -> null);
+        }));
+    }
+
+    /**
+     * Arguments of update_player_counters.lua, moving one player from the proxy and server it was counted on
+     * to the ones it is on now. Null stands for none.
+     */
+    private static List<String> counterMove(String fromProxy, String fromServer, String toProxy, String toServer) {
+        return List.of(Objects.toString(fromProxy, ""), Objects.toString(fromServer, ""), Objects.toString(toProxy, ""), Objects.toString(toServer, ""));
+    }
+
+    /**
+     * Corrects drift of one proxy's counters by counting its players and their servers through the proxy's member set,
+     * so the cost only depends on the players of that proxy. The counters are read before the players are counted
+     * and only overwritten if they still hold the values read, a login, switch or disconnect in between
+     * leaves them to the next run. The counters of a state change are moved after its script replied, so a difference
+     * is only corrected once the same one was seen again after twice the command timeout.
+     *
+     * @return the number of counters that had to be corrected
+     */
+    public int reconcileProxyCounters(String proxyId) {
+        Response<String> playerCounter;
+        Supplier<Map<String, String>> proxyServerCounters;
+        try (RedisBatch batch = batch()) {
+            playerCounter = batch.getHashField("rv-proxy-players", proxyId);
+            proxyServerCounters = batch.getHashValuesAsPair(RV_PROXY_SERVER_PLAYERS);
+            batch.sync();
+        }
+
+        Set<String> members = getProxyMembers(proxyId);
+        Map<String, Response<String>> playerProxies = new HashMap<>();
+        Map<String, Response<String>> playerServers = new HashMap<>();
+        try (RedisBatch batch = batch()) {
+            for (String uuid : members) {
+                playerProxies.put(uuid, batch.getHashField("rv-players-proxy", uuid));
+                playerServers.put(uuid, batch.getHashField("rv-players-server", uuid));
+            }
+            batch.sync();
+        }
+
+        long players = 0;
+        Map<String, Long> serverPlayers = new HashMap<>();
+        for (String uuid : members) {
+            if (!proxyId.equals(playerProxies.get(uuid).get())) {
+                continue;
+            }
+            players++;
+            String server = playerServers.get(uuid).get();
+            if (server != null) {
+                serverPlayers.merge(getProxyServerField(proxyId, server), 1L, Long::sum);
+            }
+        }
+
+        String serverPrefix = getProxyServerField(proxyId, "");
+        Map<String, String> serverCounters = new HashMap<>();
+        proxyServerCounters.get().forEach((field, count) -> {
+            if (field.startsWith(serverPrefix)) {
+                serverCounters.put(field, count);
             }
+        });
+        // sorted, so every proxy reports the same difference in the same order
+        Set<String> fields = new TreeSet<>(serverCounters.keySet());
+        fields.addAll(serverPlayers.keySet());
+
+        List<String> args = new ArrayList<>(List.of(proxyId, String.valueOf(System.currentTimeMillis()), String.valueOf(2 * commandTimeoutMillis),
+                Objects.toString(playerCounter.get(), ""), String.valueOf(players)));
+        for (String field : fields) {
+            args.addAll(List.of(field, serverCounters.getOrDefault(field, ""), String.valueOf(serverPlayers.getOrDefault(field, 0L))));
         }
-        return values;
+        Object corrected = runScript(RedisScript.RECONCILE_PROXY_COUNTERS, List.of("rv-proxy-players", RV_PROXY_SERVER_PLAYERS, RV_PROXY_COUNTER_DRIFT), args);
+        return corrected instanceof Long count && count > 0 ? count.intValue() : 0;
     }
 
-    public void setString(String key, String value) {
-        try (var jedis = jedisPool.getResource()) {
-            jedis.set(key, value);
+    /**
+     * Recomputes the global and per-server counters from the per-proxy counters and removes the counters
+     * of proxies that are no longer registered, all in one script. Nothing is written if the fencing token is outdated.
+     * Proxies whose last heartbeat is older than the deadline don't count, so a crashed proxy's players leave the totals
+     * before its cleanup ran.
+     *
+     * @return the number of counters that had to be corrected
+     */
+    public int reconcileNetworkCounters(long fencingToken, long heartbeatDeadline) {
+        Object corrected = runScript(RedisScript.RECONCILE_NETWORK_COUNTERS,
+                List.of("rv-proxies", "rv-proxy-players", RV_PROXY_SERVER_PLAYERS, "rv-global-playercount", RV_SERVER_PLAYERS, RV_PROXY_LEADER_TOKEN, RV_PROXY_HEARTBEAT,
+                        RV_PROXY_COUNTER_DRIFT),
+                List.of(String.valueOf(fencingToken), String.valueOf(heartbeatDeadline)));
+        return corrected instanceof Long count && count > 0 ? count.intValue() : 0;
+    }
+
+    /**
+     * Players per backend server across the network.
+     */
+    public Map<String, Long> getServerPlayerCounts(ReadConsistency consistency) {
+        Map<String, Long> counts = new HashMap<>();
+        getHashValuesAsPair(RV_SERVER_PLAYERS, consistency).forEach((server, count) -> counts.put(server, parseCounter(count)));
+        return counts;
+    }
+
+    /**
+     * Players per backend server on the given proxy.
+     */
+    public Map<String, Long> getProxyServerPlayerCounts(String proxyId, ReadConsistency consistency) {
+        String prefix = getProxyServerField(proxyId, "");
+        Map<String, Long> counts = new HashMap<>();
+        getHashValuesAsPair(RV_PROXY_SERVER_PLAYERS, consistency).forEach((field, count) -> {
+            if (field.startsWith(prefix)) {
+                counts.put(field.substring(prefix.length()), parseCounter(count));
+            }
+        });
+        return counts;
+    }
+
+    public long getServerPlayerCount(String serverName, ReadConsistency consistency) {
+        return parseCounter(getHashField(RV_SERVER_PLAYERS, serverName, consistency));
+    }
+
+    private static long parseCounter(String value) {
+        return value == null ? 0 : Long.parseLong(value);
+    }
+
+    /**
+     * Rebuilds the name and proxy membership indexes from the player hashes,
+     * e.g. for players that joined before the indexes existed.
+     */
+    public void rebuildPlayerIndexes() {
+        Map<String, String> playerProxies = getHashValuesAsPair("rv-players-proxy");
+        try (Stream<Map.Entry<String, String>> players = scanHash("rv-players-name"); RedisBatch batch = batch()) {
+            players.forEach(entry -> {
+                batch.setPlayerHashField(RV_PLAYERS_NAME_INDEX, entry.getKey(), entry.getValue().toLowerCase(Locale.ROOT), entry.getKey());
+                String playerProxy = playerProxies.get(entry.getKey());
+                if (playerProxy != null) {
+                    batch.addToSet(getProxyMembersKey(playerProxy), entry.getKey());
+                }
+            });
+            batch.sync();
+        }
+    }
+
+    public String getPlayerUuidByName(String username) {
+        return getPlayerUuidByName(username, ReadConsistency.PRIMARY);
+    }
+
+    public String getPlayerUuidByName(String username, ReadConsistency consistency) {
+        return await(getPlayerUuidByNameAsync(username, consistency));
+    }
+
+    public CompletableFuture<String> getPlayerUuidByNameAsync(String username, ReadConsistency consistency) {
+        return readAsync(consistency, batch -> batch.findPlayerHashField(RV_PLAYERS_NAME_INDEX, username.toLowerCase(Locale.ROOT)));
+    }
+
+    public Set<String> getProxyMembers(String proxyId) {
+        return await(getProxyMembersAsync(proxyId));
+    }
+
+    public CompletableFuture<Set<String>> getProxyMembersAsync(String proxyId) {
+        return commandQueue.submit(batch -> batch.getSetMembers(getProxyMembersKey(proxyId)));
+    }
+
+    /**
+     * The usernames of the players on the given proxy by their UUID, read through the proxy's member set,
+     * so the cost only depends on the players of that proxy. Members that already moved to another proxy are left out.
+     */
+    public Map<String, String> getProxyPlayerNames(String proxyId, ReadConsistency consistency) {
+        Set<String> members = await(readAsync(consistency, batch -> batch.getSetMembers(getProxyMembersKey(proxyId))));
+        return await(readAsync(consistency, batch -> {
+            Map<String, Response<String>> playerProxies = new HashMap<>();
+            Map<String, Response<String>> playerNames = new HashMap<>();
+            for (String uuid : members) {
+                playerProxies.put(uuid, batch.getHashField("rv-players-proxy", uuid));
+                playerNames.put(uuid, batch.getHashField("rv-players-name", uuid));
+            }
+            return () -> {
+                Map<String, String> names = new HashMap<>();
+                playerNames.forEach((uuid, name) -> {
+                    if (proxyId.equals(playerProxies.get(uuid).get()) && name.get() != null) {
+                        names.put(uuid, name.get());
+                    }
+                });
+                return names;
+            };
+        }));
+    }
+
+    /**
+     * Runs one of the bundled Lua scripts atomically on the Redis server.
+     * The keys must not be sharded, in cluster mode they all share one slot.
+     */
+    public Object runScript(RedisScript script, List<String> keys, List<String> args) {
+        return guarded(() -> scriptRegistry.eval(client, script, keys.stream().map(keyLayout::key).toList(), args));
+    }
+
+    /**
+     * Runs the script by its SHA in the writer pipeline. If the script is not loaded on the server yet,
+     * it is loaded and run off the writer thread instead.
+     */
+    public CompletableFuture<Object> runScriptAsync(RedisScript script, List<String> keys, List<String> args) {
+        return evalAsync(script, keys.stream().map(keyLayout::key).toList(), args);
+    }
+
+    private CompletableFuture<Object> evalAsync(RedisScript script, List<String> redisKeys, List<String> args) {
+        String sha = scriptRegistry.getSha(script);
+        if (sha == null) {
+            return supplyGuarded(() -> scriptRegistry.eval(client, script, redisKeys, args));
+        }
+        return commandQueue.submit(batch -> batch.evalsha(sha, redisKeys, args))
+                .exceptionallyCompose(e -> unwrap(e) instanceof JedisNoScriptException
+                        ? supplyGuarded(() -> scriptRegistry.eval(client, script, redisKeys, args))
+                        : CompletableFuture.failedFuture(e));
+    }
+
+    /**
+     * Runs one of the bundled Lua scripts on a single player shard, with every key resolved to that shard.
+     */
+    public Object runShardScript(RedisScript script, int shard, List<String> keys, List<String> args) {
+        return guarded(() -> scriptRegistry.eval(client, script, keys.stream().map(key -> keyLayout.shardKey(key, shard)).toList(), args));
+    }
+
+    public void setHashField(String hashName, String fieldName, String value) {
+        await(setHashFieldAsync(hashName, fieldName, value));
+    }
+
+    public CompletableFuture<Void> setHashFieldAsync(String hashName, String fieldName, String value) {
+        return journaled(batch -> batch.setHashField(hashName, fieldName, value), RedisJournal.Operation.SET_HASH_FIELD, hashName, fieldName, value).handle((reply, e) -> {
+            if (e == null) {
+                return null;
+            }
+            if (!(unwrap(e) instanceof JedisDataException dataException) || !isWrongType(dataException)) {
+                throw e instanceof CompletionException completionException ? completionException : new CompletionException(e);
+            }
+            rediVelocityLogger.sendErrorLogs("Error: Key " + hashName + " doesn't hold a hash, validating the key schema...");
+            requestKeySchemaValidation();
+            return null;
+        });
+    }
+
+    /**
+     * Checks the type of every rv-* key once and repairs or reports the ones that are wrong.
+     */
+    public void validateKeySchema() {
+        if (!isValidatingKeySchema.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int invalidKeys = keySchemaValidator.validate(client);
+            if (invalidKeys > 0) {
+                rediVelocityLogger.sendErrorLogs("Found " + invalidKeys + " Redis keys with an unexpected type.");
+            }
+        } catch (Exception e) {
+            rediVelocityLogger.sendErrorLogs("Failed to validate the Redis key schema: " + e.getMessage());
+        } finally {
+            isValidatingKeySchema.set(false);
+        }
+    }
+
+    private void requestKeySchemaValidation() {
+        if (!isValidatingKeySchema.get()) {
+            executor.run(this::validateKeySchema);
+        }
+    }
+
+    private static boolean isWrongType(JedisDataException e) {
+        return e.getMessage() != null && e.getMessage().startsWith("WRONGTYPE");
+    }
+
+    public void deleteHashField(String hashName, String fieldName) {
+        await(deleteHashFieldAsync(hashName, fieldName));
+    }
+
+    public CompletableFuture<Long> deleteHashFieldAsync(String hashName, String... fieldNames) {
+        String[] args = new String[fieldNames.length + 1];
+        args[0] = hashName;
+        System.arraycopy(fieldNames, 0, args, 1, fieldNames.length);
+        return journaled(batch -> batch.deleteHashField(hashName, fieldNames), RedisJournal.Operation.DELETE_HASH_FIELD, args);
+    }
+
+    public void deleteHash(String hashName) {
+        await(deleteHashAsync(hashName));
+    }
+
+    public CompletableFuture<Long> deleteHashAsync(String hashName) {
+        return journaled(batch -> batch.deleteHash(hashName), RedisJournal.Operation.DELETE_HASH, hashName);
+    }
+
+    public Map<String, String> getHashValuesAsPair(String hashName) {
+        return getHashValuesAsPair(hashName, ReadConsistency.PRIMARY);
+    }
+
+    public Map<String, String> getHashValuesAsPair(String hashName, ReadConsistency consistency) {
+        return await(getHashValuesAsPairAsync(hashName, consistency));
+    }
+
+    public CompletableFuture<Map<String, String>> getHashValuesAsPairAsync(String hashName, ReadConsistency consistency) {
+        if (isNearCached(hashName)) {
+            return readNearCached(jedis -> jedis.hgetAll(keyLayout.key(hashName)));
         }
+        return readAsync(consistency, batch -> batch.getHashValuesAsPair(hashName));
+    }
+
+    /**
+     * Streams the entries of a (possibly huge) hash with HSCAN using the configured page size.
+     * Sharded hashes are scanned one shard after the other.
+     */
+    public Stream<Map.Entry<String, String>> scanHash(String hashName) {
+        return scanHash(hashName, scanPageSize, ReadConsistency.PRIMARY);
+    }
+
+    public Stream<Map.Entry<String, String>> scanHash(String hashName, ReadConsistency consistency) {
+        return scanHash(hashName, scanPageSize, consistency);
+    }
+
+    public Stream<Map.Entry<String, String>> scanHash(String hashName, int pageSize, ReadConsistency consistency) {
+        ScanParams params = new ScanParams().count(pageSize);
+        return keyLayout.keys(hashName).stream().flatMap(key -> {
+            HashScanIterator iterator = new HashScanIterator(cursor -> read(consistency, jedis -> jedis.hscan(key, cursor, params)));
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.NONNULL), false);
+        });
+    }
+
+    public void setString(String key, String value) {
+        await(setStringAsync(key, value));
+    }
+
+    public CompletableFuture<String> setStringAsync(String key, String value) {
+        return journaled(batch -> batch.setString(key, value), RedisJournal.Operation.SET_STRING, key, value);
     }
 
     public void deleteString(String key) {
-        try (var jedis = jedisPool.getResource()) {
-            jedis.del(key);
+        await(deleteStringAsync(key));
+    }
+
+    public CompletableFuture<Long> deleteStringAsync(String key) {
+        return journaled(batch -> batch.deleteString(key), RedisJournal.Operation.DELETE_STRING, key);
+    }
+
+    /**
+     * Runs a read-only command on a replica if the caller tolerates stale data and replicas are configured.
+     * Falls back to the primary when the replica can't be reached.
+     */
+    private <T> T read(ReadConsistency consistency, Function<UnifiedJedis, T> command) {
+        if (consistency == ReadConsistency.REPLICA && !replicaPools.isEmpty()) {
+            JedisPooled replica = replicaPools.get(Math.floorMod(replicaCursor.getAndIncrement(), replicaPools.size()));
+            try {
+                return command.apply(replica);
+            } catch (JedisConnectionException e) {
+                rediVelocityLogger.sendErrorLogs("Redis replica read failed, using the primary: " + e.getMessage());
+            }
         }
+        return guarded(() -> command.apply(client));
     }
 
-    public void deleteHashFieldByBalue(String hashName, String value) {
-        try (var jedis = jedisPool.getResource()) {
-            Set<String> keys = jedis.hkeys(hashName);
-            for (String key : keys) {
-                if (jedis.hget(hashName, key).equals(value)) {
-                    jedis.hdel(hashName, key);
+    /**
+     * Runs a call on the client directly, failing fast while the circuit breaker is open and reporting its outcome to it.
+     */
+    private <T> T guarded(Supplier<T> call) {
+        circuitBreaker.checkClosed();
+        try {
+            T reply = call.get();
+            circuitBreaker.recordSuccess();
+            return reply;
+        } catch (RuntimeException e) {
+            circuitBreaker.recordFailure(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Runs a guarded call on the executor, bounded by the command deadline like the queued commands.
+     */
+    private <T> CompletableFuture<T> supplyGuarded(Supplier<T> call) {
+        return executor.supply(() -> guarded(call)).orTimeout(commandTimeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues a read-only command on a replica if the caller tolerates stale data and replicas are configured.
+     * Falls back to the primary when the replica can't be reached.
+     */
+    private <T> CompletableFuture<T> readAsync(ReadConsistency consistency, Function<RedisBatch, Supplier<T>> command) {
+        if (consistency == ReadConsistency.REPLICA && !replicaQueues.isEmpty()) {
+            RedisCommandQueue replicaQueue = replicaQueues.get(Math.floorMod(replicaCursor.getAndIncrement(), replicaQueues.size()));
+            return replicaQueue.submit(command).exceptionallyCompose(e -> {
+                if (!(unwrap(e) instanceof JedisConnectionException)) {
+                    return CompletableFuture.failedFuture(e);
+                }
+                if (!(unwrap(e) instanceof RedisUnavailableException)) {
+                    rediVelocityLogger.sendErrorLogs("Redis replica read failed, using the primary: " + e.getMessage());
                 }
+                return commandQueue.submit(command);
+            });
+        }
+        return commandQueue.submit(command);
+    }
+
+    private boolean isNearCached(String key) {
+        return nearCache != null && nearCache.isHot(key);
+    }
+
+    /**
+     * Reads a hot key directly on the client instead of the writer pipeline, since pipelines bypass the near cache.
+     * A hit costs no network at all, a miss is a normal round trip that fills the cache. It still runs off the
+     * calling thread, so a miss never blocks an event thread.
+     * The cache is kept coherent by the primary, so it's used regardless of the requested consistency.
+     */
+    private <T> CompletableFuture<T> readNearCached(Function<UnifiedJedis, T> command) {
+        return supplyGuarded(() -> command.apply(client));
+    }
+
+    /**
+     * Waits for an async operation, rethrowing its original exception.
+     */
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
             }
+            throw e;
         }
     }
 
+    private static Throwable unwrap(Throwable throwable) {
+        return throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+    }
+
     public String getString(String key) {
-        try (var jedis = jedisPool.getResource()) {
-            return jedis.get(key);
+        return getString(key, ReadConsistency.PRIMARY);
+    }
+
+    public String getString(String key, ReadConsistency consistency) {
+        return await(getStringAsync(key, consistency));
+    }
+
+    public CompletableFuture<String> getStringAsync(String key, ReadConsistency consistency) {
+        if (isNearCached(key)) {
+            return readNearCached(jedis -> jedis.get(keyLayout.key(key)));
         }
+        return readAsync(consistency, batch -> batch.getString(key));
     }
 
     public String getHashField(String hashName, String fieldName) {
-        try (var jedis = jedisPool.getResource()) {
-            return jedis.hget(hashName, fieldName);
+        return getHashField(hashName, fieldName, ReadConsistency.PRIMARY);
+    }
+
+    public String getHashField(String hashName, String fieldName, ReadConsistency consistency) {
+        return await(getHashFieldAsync(hashName, fieldName, consistency));
+    }
+
+    public CompletableFuture<String> getHashFieldAsync(String hashName, String fieldName, ReadConsistency consistency) {
+        if (isNearCached(hashName)) {
+            return readNearCached(jedis -> jedis.hget(keyLayout.key(hashName), fieldName));
         }
+        return readAsync(consistency, batch -> batch.getHashField(hashName, fieldName));
     }
 
     public Set<String> getAllHashFields(String hashName) {
-        try (var jedis = jedisPool.getResource()) {
-            return jedis.hkeys(hashName);
+        return getAllHashFields(hashName, ReadConsistency.PRIMARY);
+    }
+
+    public Set<String> getAllHashFields(String hashName, ReadConsistency consistency) {
+        return await(getAllHashFieldsAsync(hashName, consistency));
+    }
+
+    public CompletableFuture<Set<String>> getAllHashFieldsAsync(String hashName, ReadConsistency consistency) {
+        if (isNearCached(hashName)) {
+            return readNearCached(jedis -> jedis.hkeys(keyLayout.key(hashName)));
         }
+        return readAsync(consistency, batch -> batch.getAllHashFields(hashName));
     }
 
     public List<String> getAllHashValues(String hashName) {
-        try (var jedis = jedisPool.getResource()) {
-            return jedis.hvals(hashName);
-        }
+        return getAllHashValues(hashName, ReadConsistency.PRIMARY);
     }
 
-    public String getHashKeyByValue(String hashName, String value) {
-        try (var jedis = jedisPool.getResource()) {
-            Set<String> keys = jedis.hkeys(hashName);
-            for (String key : keys) {
-                if (jedis.hget(hashName, key).equals(value)) {
-                    return key;
-                }
-            }
+    public List<String> getAllHashValues(String hashName, ReadConsistency consistency) {
+        return await(getAllHashValuesAsync(hashName, consistency));
+    }
+
+    public CompletableFuture<List<String>> getAllHashValuesAsync(String hashName, ReadConsistency consistency) {
+        if (isNearCached(hashName)) {
+            return readNearCached(jedis -> jedis.hvals(keyLayout.key(hashName)));
         }
-        return null;
+        return readAsync(consistency, batch -> batch.getAllHashValues(hashName));
+    }
+
+    public void addToSortedSet(String key, double score, String member) {
+        await(addToSortedSetAsync(key, score, member));
+    }
+
+    public CompletableFuture<Long> addToSortedSetAsync(String key, double score, String member) {
+        return commandQueue.submit(batch -> batch.addToSortedSet(key, score, member));
+    }
+
+    public long getSortedSetSize(String key) {
+        return await(readAsync(ReadConsistency.PRIMARY, batch -> batch.getSortedSetSize(key)));
+    }
+
+    public List<String> getSortedSetRangeByScore(String key, double min, double max) {
+        return getSortedSetRangeByScore(key, min, max, ReadConsistency.PRIMARY);
+    }
+
+    public List<String> getSortedSetRangeByScore(String key, double min, double max, ReadConsistency consistency) {
+        return await(getSortedSetRangeByScoreAsync(key, min, max, consistency));
+    }
+
+    public CompletableFuture<List<String>> getSortedSetRangeByScoreAsync(String key, double min, double max, ReadConsistency consistency) {
+        return readAsync(consistency, batch -> batch.getSortedSetRangeByScore(key, min, max));
     }
 
     public Boolean exists(String key) {
-        try (var jedis = jedisPool.getResource()) {
-            return jedis.exists(key);
-        }
+        return await(existsAsync(key));
+    }
+
+    public CompletableFuture<Boolean> existsAsync(String key) {
+        return commandQueue.submit(batch -> batch.exists(key));
     }
 }
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2025.
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ *  along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dev.bypixel.redivelocity.jedisWrapper;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs blocking Redis work on virtual threads, so a slow Redis never ties up Velocity's threads.
+ * The amount of pending tasks is bounded, once it's reached new tasks are rejected right away
+ * instead of piling up while Redis is slow or unreachable.
+ */
+public class RedisExecutor implements Executor, AutoCloseable {
+
+    private final ThreadFactory threadFactory = Thread.ofVirtual().name("RediVelocity Redis I/O #", 0).factory();
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(threadFactory);
+    private final int maxPendingTasks;
+    private final Semaphore pendingTasks;
+    private final LongAdder completedTasks = new LongAdder();
+    private final LongAdder rejectedTasks = new LongAdder();
+    private final LongAdder totalLatencyNanos = new LongAdder();
+    private final LongAccumulator maxLatencyNanos = new LongAccumulator(Math::max, 0);
+
+    public RedisExecutor(int maxPendingTasks) {
+        this.maxPendingTasks = Math.max(1, maxPendingTasks);
+        this.pendingTasks = new Semaphore(this.maxPendingTasks);
+    }
+
+    /**
+     * @throws RejectedExecutionException if too many tasks are pending or the executor has been closed
+     */
+    @Override
+    public void execute(Runnable task) {
+        if (!pendingTasks.tryAcquire()) {
+            rejectedTasks.increment();
+            throw new RejectedExecutionException("Too many pending Redis tasks (" + maxPendingTasks + ")");
+        }
+        long submittedAt = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    long latency = System.nanoTime() - submittedAt;
+                    totalLatencyNanos.add(latency);
+                    maxLatencyNanos.accumulate(latency);
+                    completedTasks.increment();
+                    pendingTasks.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pendingTasks.release();
+            rejectedTasks.increment();
+            throw e;
+        }
+    }
+
+    /**
+     * Runs the task on this executor. A rejected task fails the returned future instead of throwing.
+     */
+    public <T> CompletableFuture<T> supply(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, this);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    public CompletableFuture<Void> run(Runnable task) {
+        return supply(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Starts a task that runs for the whole lifetime of the plugin, like a subscription.
+     * It gets its own virtual thread and doesn't count against the pending task limit.
+     */
+    public Thread startDedicated(String name, Runnable task) {
+        return Thread.ofVirtual().name("RediVelocity " + name).start(task);
+    }
+
+    public RedisExecutorStats getStats() {
+        long completed = completedTasks.sum();
+        return new RedisExecutorStats(
+                maxPendingTasks - pendingTasks.availablePermits(),
+                maxPendingTasks,
+                completed,
+                rejectedTasks.sum(),
+                completed == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalLatencyNanos.sum() / completed),
+                TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos.get())
+        );
+    }
+
+    /**
+     * Stops accepting tasks and gives the running ones a few seconds to finish.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
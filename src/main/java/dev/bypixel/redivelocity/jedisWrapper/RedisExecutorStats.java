@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2025.
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ *  along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dev.bypixel.redivelocity.jedisWrapper;
+
+/**
+ * Snapshot of the Redis I/O executor usage. The latencies cover the time from submission until a task finished.
+ */
+public record RedisExecutorStats(
+        int pending,
+        int maxPending,
+        long completed,
+        long rejected,
+        long meanLatencyMillis,
+        long maxLatencyMillis
+) {
+}
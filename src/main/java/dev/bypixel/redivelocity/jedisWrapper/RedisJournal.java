@@ -0,0 +1,337 @@
+/*
+ * Copyright (c) 2025.
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ *  along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package dev.bypixel.redivelocity.jedisWrapper;
+
+import dev.bypixel.redivelocity.RediVelocityLogger;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Append-only journal of the writes and events that couldn't be sent to Redis. Entries go into memory-mapped
+ * segment files that rotate once full, the oldest segment is dropped when the journal would exceed its maximum size.
+ * Segments survive a restart of the proxy and are replayed in the order they were written.
+ * An entry is stored as its length followed by the operation and its arguments, a zero length ends a segment.
+ * How many entries of a segment were replayed is kept in a progress file next to it, so a replay that failed halfway
+ * or a segment that couldn't be deleted yet, e.g. on Windows while it is still mapped, isn't sent again.
+ */
+class RedisJournal {
+
+    @Getter
+    enum Operation {
+        PUBLISH(false),
+        SET_HASH_FIELD(true),
+        DELETE_HASH_FIELD(true),
+        DELETE_HASH(true),
+        SET_STRING(true),
+        DELETE_STRING(true);
+
+        /**
+         * Whether sending it twice has the same effect as sending it once.
+         */
+        private final boolean idempotent;
+
+        Operation(boolean idempotent) {
+            this.idempotent = idempotent;
+        }
+    }
+
+    record Entry(Operation operation, List<String> args) {
+
+        void apply(RedisBatch batch) {
+            switch (operation) {
+                case PUBLISH -> batch.publish(args.get(0), args.get(1));
+                case SET_HASH_FIELD -> batch.setHashField(args.get(0), args.get(1), args.get(2));
+                case DELETE_HASH_FIELD -> batch.deleteHashField(args.get(0), args.subList(1, args.size()).toArray(String[]::new));
+                case DELETE_HASH -> batch.deleteHash(args.get(0));
+                case SET_STRING -> batch.setString(args.get(0), args.get(1));
+                case DELETE_STRING -> batch.deleteString(args.get(0));
+            }
+        }
+    }
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String PROGRESS_SUFFIX = ".replayed";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final RediVelocityLogger logger;
+    // full segments waiting for replay, oldest first
+    private final Deque<Path> segments = new ArrayDeque<>();
+    // replayed or dropped segments whose file couldn't be deleted yet
+    private final List<Path> undeleted = new ArrayList<>();
+    private long nextSegmentId;
+    private Path currentPath;
+    private MappedByteBuffer current;
+    private boolean replaying;
+
+    RedisJournal(Path directory, int segmentSize, int maxSegments, RediVelocityLogger logger) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = Math.max(1, maxSegments);
+        this.logger = logger;
+
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.getFileName().toString().startsWith(SEGMENT_PREFIX) && file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .forEach(segments::add);
+        }
+        for (Path segment : segments) {
+            nextSegmentId = Math.max(nextSegmentId, segmentId(segment) + 1);
+        }
+        // progress of segments that were deleted, a new segment with the same id must not skip its entries
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path progress : files.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX + PROGRESS_SUFFIX)).toList()) {
+                String segmentName = progress.getFileName().toString();
+                if (!segments.contains(progress.resolveSibling(segmentName.substring(0, segmentName.length() - PROGRESS_SUFFIX.length())))) {
+                    Files.deleteIfExists(progress);
+                }
+            }
+        }
+        if (!segments.isEmpty()) {
+            logger.sendLogs("Found " + segments.size() + " Redis journal segments from a previous run, they are replayed once Redis is available.");
+        }
+    }
+
+    /**
+     * Appends the entry if {@code force} is set or older entries are still waiting for replay, so that writes keep
+     * their order. Returns false if the entry wasn't journaled and should be sent to Redis directly.
+     */
+    synchronized boolean append(boolean force, Operation operation, String... args) {
+        if (!force && !hasPending()) {
+            return false;
+        }
+
+        byte[] entry = encode(operation, args);
+        if (Integer.BYTES + entry.length > segmentSize || args.length > 0xFF) {
+            logger.sendErrorLogs("A Redis journal entry of " + entry.length + " bytes doesn't fit into a journal segment.");
+            return false;
+        }
+
+        try {
+            if (current != null && current.remaining() < Integer.BYTES + entry.length) {
+                seal();
+            }
+            if (current == null) {
+                openSegment();
+            }
+        } catch (IOException e) {
+            logger.sendErrorLogs("Failed to open a new Redis journal segment: " + e.getMessage());
+            return false;
+        }
+
+        // the length goes in last, a crash in between leaves a zero length that ends the segment
+        int position = current.position();
+        current.put(position + Integer.BYTES, entry);
+        current.putInt(position, entry.length);
+        current.position(position + Integer.BYTES + entry.length);
+        return true;
+    }
+
+    /**
+     * True while entries are journaled or being replayed.
+     */
+    synchronized boolean hasPending() {
+        return replaying || current != null || !segments.isEmpty();
+    }
+
+    /**
+     * Closes the segment that is being written and returns all segments that wait for replay. Until this returns
+     * an empty list new writes keep going into the journal behind them.
+     */
+    synchronized List<Path> nextSegments() {
+        List.copyOf(undeleted).forEach(this::discard);
+        seal();
+        replaying = !segments.isEmpty();
+        return List.copyOf(segments);
+    }
+
+    /**
+     * The number of entries of the segment that an earlier replay already sent to Redis.
+     */
+    int replayedEntries(Path segment) {
+        try {
+            return Integer.parseInt(Files.readString(progressPath(segment)).trim());
+        } catch (IOException | NumberFormatException e) {
+            // no progress yet, or it was cut off by a crash while it was written
+            return 0;
+        }
+    }
+
+    /**
+     * Records that the first entries of the segment were sent to Redis, a later replay continues after them.
+     */
+    void markReplayed(Path segment, int entries) throws IOException {
+        Files.writeString(progressPath(segment), String.valueOf(entries));
+    }
+
+    /**
+     * Deletes a segment once all of its entries were sent to Redis.
+     */
+    synchronized void finishSegment(Path segment) {
+        segments.remove(segment);
+        discard(segment);
+    }
+
+    /**
+     * Lets writes go to Redis directly again after a replay failed, the remaining segments are kept.
+     */
+    synchronized void stopReplay() {
+        replaying = false;
+    }
+
+    synchronized void close() {
+        seal();
+    }
+
+    /**
+     * Reads a sealed segment into memory. It isn't mapped, so nothing keeps the file open once it was read.
+     */
+    static List<Entry> read(Path segment, RediVelocityLogger logger) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        ByteBuffer buffer;
+        try {
+            buffer = ByteBuffer.wrap(Files.readAllBytes(segment));
+        } catch (NoSuchFileException e) {
+            // dropped because the journal was full
+            return entries;
+        }
+
+        try {
+            while (buffer.remaining() >= Integer.BYTES) {
+                int length = buffer.getInt();
+                if (length <= 0) {
+                    break;
+                }
+                entries.add(decode(buffer.slice(buffer.position(), length)));
+                buffer.position(buffer.position() + length);
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException | NegativeArraySizeException e) {
+            logger.sendErrorLogs("Redis journal segment " + segment.getFileName() + " is damaged, replaying its first " + entries.size() + " entries.");
+        }
+        return entries;
+    }
+
+    private void openSegment() throws IOException {
+        // the open segment counts against the limit as well
+        while (segments.size() >= maxSegments) {
+            Path oldest = segments.poll();
+            discard(oldest);
+            logger.sendErrorLogs("The Redis journal is full, dropped its oldest segment " + oldest.getFileName() + ".");
+        }
+
+        Path path = directory.resolve(String.format(Locale.ROOT, "%s%012d%s", SEGMENT_PREFIX, nextSegmentId++, SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            current = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        currentPath = path;
+    }
+
+    private void seal() {
+        if (current == null) {
+            return;
+        }
+        current.force();
+        segments.add(currentPath);
+        current = null;
+        currentPath = null;
+    }
+
+    /**
+     * Deletes a segment and its progress. A segment that can't be deleted yet is marked as replayed completely,
+     * so it is never sent again, and deleting it is retried before the next replay.
+     */
+    private void discard(Path segment) {
+        try {
+            Files.deleteIfExists(segment);
+            Files.deleteIfExists(progressPath(segment));
+            undeleted.remove(segment);
+        } catch (IOException e) {
+            if (undeleted.contains(segment)) {
+                return;
+            }
+            undeleted.add(segment);
+            try {
+                markReplayed(segment, Integer.MAX_VALUE);
+            } catch (IOException progressException) {
+                logger.sendErrorLogs("Failed to delete the Redis journal segment " + segment.getFileName() + ", it may be replayed again: " + progressException.getMessage());
+            }
+        }
+    }
+
+    private static Path progressPath(Path segment) {
+        return segment.resolveSibling(segment.getFileName() + PROGRESS_SUFFIX);
+    }
+
+    private static long segmentId(Path segment) {
+        String name = segment.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static byte[] encode(Operation operation, String... args) {
+        byte[][] encodedArgs = new byte[args.length][];
+        int length = 2;
+        for (int i = 0; i < args.length; i++) {
+            encodedArgs[i] = args[i].getBytes(StandardCharsets.UTF_8);
+            length += Integer.BYTES + encodedArgs[i].length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.put((byte) operation.ordinal());
+        buffer.put((byte) args.length);
+        for (byte[] arg : encodedArgs) {
+            buffer.putInt(arg.length);
+            buffer.put(arg);
+        }
+        return buffer.array();
+    }
+
+    private static Entry decode(ByteBuffer buffer) {
+        Operation operation = Operation.values()[buffer.get()];
+        int argCount = buffer.get() & 0xFF;
+        List<String> args = new ArrayList<>(argCount);
+        for (int i = 0; i < argCount; i++) {
+            byte[] arg = new byte[buffer.getInt()];
+            buffer.get(arg);
+            args.add(new String(arg, StandardCharsets.UTF_8));
+        }
+        return new Entry(operation, args);
+    }
+}
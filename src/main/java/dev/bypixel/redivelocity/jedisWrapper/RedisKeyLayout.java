@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2025.
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ *  along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dev.bypixel.redivelocity.jedisWrapper;
+
+import lombok.Getter;
+import redis.clients.jedis.util.JedisClusterCRC16;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Maps the logical rv-* key names to the keys stored in Redis.
+ * On a single node the names are used as they are. On a cluster all network wide keys share the {rv} hash tag,
+ * so the Lua scripts touching several of them stay in one slot, while the per-player hashes and the proxy member
+ * sets are split into shards tagged {rv-0}, {rv-1}, ... by the hash of their field.
+ * The name index is keyed by player name but stored in the shard of the player's UUID, so all state of one player
+ * shares a slot and can be written by a single script. Lookups by name ask every shard.
+ */
+public class RedisKeyLayout {
+
+    private static final String NETWORK_TAG = "{rv}";
+    private static final String PROXY_MEMBERS_PREFIX = "rv-proxy-members-";
+    private static final String PLAYERS_NAME_INDEX = "rv-players-name-index";
+    private static final Set<String> PLAYER_HASHES = Set.of(
+            "rv-players-name",
+            "rv-players-name-index",
+            "rv-players-proxy",
+            "rv-players-ip",
+            "rv-players-lastseen",
+            "rv-players-server"
+    );
+
+    @Getter
+    private final boolean cluster;
+    @Getter
+    private final int shardCount;
+
+    private RedisKeyLayout(boolean cluster, int shardCount) {
+        this.cluster = cluster;
+        this.shardCount = shardCount;
+    }
+
+    public static RedisKeyLayout standalone() {
+        return new RedisKeyLayout(false, 1);
+    }
+
+    public static RedisKeyLayout cluster(int shardCount) {
+        return new RedisKeyLayout(true, Math.max(1, shardCount));
+    }
+
+    /**
+     * Whether the given logical key is split into several Redis keys.
+     */
+    public boolean isSharded(String name) {
+        return shardCount > 1 && (PLAYER_HASHES.contains(name) || name.startsWith(PROXY_MEMBERS_PREFIX));
+    }
+
+    /**
+     * The Redis key of a key that is not sharded.
+     */
+    public String key(String name) {
+        if (isSharded(name)) {
+            throw new IllegalArgumentException("Key " + name + " is sharded, a field is needed to resolve it");
+        }
+        return cluster ? name + NETWORK_TAG : name;
+    }
+
+    /**
+     * The Redis key holding the given hash field or set member.
+     */
+    public String key(String name, String field) {
+        if (PLAYERS_NAME_INDEX.equals(name) && isSharded(name)) {
+            throw new IllegalArgumentException("Key " + name + " is sharded by player, use playerKey instead");
+        }
+        return isSharded(name) ? shardKey(name, shardOf(field)) : key(name);
+    }
+
+    /**
+     * The Redis key holding the state of the player with the given UUID.
+     */
+    public String playerKey(String name, String uuid) {
+        return isSharded(name) ? shardKey(name, shardOf(uuid)) : key(name);
+    }
+
+    /**
+     * The Redis key of one shard. Keys that are not sharded resolve to the same key for every shard.
+     */
+    public String shardKey(String name, int shard) {
+        if (!isSharded(name)) {
+            return key(name);
+        }
+        return name + "{rv-" + shard + "}";
+    }
+
+    /**
+     * All Redis keys a logical key is stored in.
+     */
+    public List<String> keys(String name) {
+        if (!isSharded(name)) {
+            return List.of(key(name));
+        }
+        List<String> keys = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            keys.add(shardKey(name, shard));
+        }
+        return keys;
+    }
+
+    int shardOf(String field) {
+        return Math.floorMod(JedisClusterCRC16.getCRC16(field), shardCount);
+    }
+
+    /**
+     * Strips the hash tag from a Redis key, e.g. rv-players-name{rv-3} becomes rv-players-name.
+     */
+    public static String logicalName(String key) {
+        int tagStart = key.indexOf('{');
+        return tagStart < 0 ? key : key.substring(0, tagStart);
+    }
+}
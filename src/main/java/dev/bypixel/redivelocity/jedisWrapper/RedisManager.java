@@ -18,23 +18,34 @@ package dev.bypixel.redivelocity.jedisWrapper;
 
 import dev.bypixel.redivelocity.RediVelocityLogger;
 import jakarta.inject.Inject;
-import redis.clients.jedis.Jedis;
-import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.UnifiedJedis;
 
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class RedisManager {
 
-    private final JedisPool jedisPool;
+    private static final long MIN_RESUBSCRIBE_DELAY_MILLIS = 1000;
+    private static final long MAX_RESUBSCRIBE_DELAY_MILLIS = 30000;
+
+    private final UnifiedJedis client;
+    private final RedisExecutor executor;
     private final RediVelocityLogger rediVelocityLogger;
+    private final List<JedisPubSub> subscriptions = new CopyOnWriteArrayList<>();
+    private volatile boolean closed;
 
     @Inject
-    public RedisManager(RediVelocityLogger rediVelocityLogger, JedisPool jedisPool) {
-        this.jedisPool = jedisPool;
+    public RedisManager(RediVelocityLogger rediVelocityLogger, UnifiedJedis client, RedisExecutor executor) {
+        this.client = client;
+        this.executor = executor;
         this.rediVelocityLogger = rediVelocityLogger;
     }
 
+    /**
+     * Subscribes on a dedicated thread. A subscription whose connection is lost is resubscribed with a growing delay,
+     * so messages keep arriving once Redis is back.
+     */
     public void subscribe(List<String> channels, RedisMessageListener onMessage) {
         JedisPubSub jedisPubSub = new JedisPubSub() {
             @Override
@@ -43,13 +54,50 @@ public class RedisManager {
             }
         };
 
-        new Thread(() -> {
-            try (Jedis jedis = jedisPool.getResource()) {
-                jedis.psubscribe(jedisPubSub, channels.toArray(new String[0]));
-            } catch (Exception e) {
-                rediVelocityLogger.sendErrorLogs(e.getMessage());
+        subscriptions.add(jedisPubSub);
+        executor.startDedicated("subscriber " + channels, () -> {
+            long delayMillis = MIN_RESUBSCRIBE_DELAY_MILLIS;
+            while (!closed) {
+                long subscribedAt = System.currentTimeMillis();
+                try {
+                    // blocks until the subscription ends
+                    client.psubscribe(jedisPubSub, channels.toArray(new String[0]));
+                    return;
+                } catch (Exception e) {
+                    if (closed) {
+                        return;
+                    }
+                    // a subscription that held for a while starts over with the shortest delay
+                    if (System.currentTimeMillis() - subscribedAt >= MAX_RESUBSCRIBE_DELAY_MILLIS) {
+                        delayMillis = MIN_RESUBSCRIBE_DELAY_MILLIS;
+                    }
+                    rediVelocityLogger.sendErrorLogs("Lost the Redis subscription to " + channels + ", resubscribing in " + delayMillis / 1000 + "s: " + e.getMessage());
+                }
+                try {
+                    Thread.sleep(delayMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                delayMillis = Math.min(delayMillis * 2, MAX_RESUBSCRIBE_DELAY_MILLIS);
+            }
+        });
+    }
+
+    /**
+     * Ends all subscriptions, which also ends their threads.
+     */
+    public void close() {
+        closed = true;
+        for (JedisPubSub subscription : subscriptions) {
+            if (subscription.isSubscribed()) {
+                try {
+                    subscription.punsubscribe();
+                } catch (Exception e) {
+                    // the connection is already gone, the thread ends on its own
+                }
             }
-        }).start();
+        }
+        subscriptions.clear();
     }
 
     @FunctionalInterface
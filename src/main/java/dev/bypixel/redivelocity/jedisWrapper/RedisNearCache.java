@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2025.
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ *  along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dev.bypixel.redivelocity.jedisWrapper;
+
+import lombok.Getter;
+import redis.clients.jedis.commands.ProtocolCommand;
+import redis.clients.jedis.csc.Cache;
+import redis.clients.jedis.csc.CacheConfig;
+import redis.clients.jedis.csc.CacheFactory;
+import redis.clients.jedis.csc.CacheStats;
+import redis.clients.jedis.csc.DefaultCacheable;
+import redis.clients.jedis.util.SafeEncoder;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Server-assisted client-side cache for the few keys that are read far more often than they change.
+ * Redis tracks the keys we read (CLIENT TRACKING over RESP3) and pushes an invalidation as soon as one changes,
+ * so cached values stay coherent without a TTL.
+ */
+public class RedisNearCache {
+
+    private static final Set<String> HOT_KEYS = Set.of(
+            "rv-global-playercount",
+            "rv-proxy-leader",
+            "rv-proxies",
+            "rv-proxy-players"
+    );
+
+    @Getter
+    private final Cache cache;
+    private final Set<String> hotRedisKeys;
+
+    public RedisNearCache(RedisKeyLayout keyLayout, int maxSize) {
+        this.hotRedisKeys = HOT_KEYS.stream().map(keyLayout::key).collect(Collectors.toUnmodifiableSet());
+        this.cache = CacheFactory.getCache(CacheConfig.builder()
+                .maxSize(Math.max(1, maxSize))
+                .cacheable(this::isCacheable)
+                .build());
+    }
+
+    /**
+     * Whether reads of the given logical key are served from the cache.
+     */
+    public boolean isHot(String name) {
+        return HOT_KEYS.contains(name);
+    }
+
+    private boolean isCacheable(ProtocolCommand command, List<Object> keys) {
+        if (!DefaultCacheable.isDefaultCacheableCommand(command) || keys.isEmpty()) {
+            return false;
+        }
+        for (Object key : keys) {
+            String redisKey = key instanceof byte[] raw ? SafeEncoder.encode(raw) : String.valueOf(key);
+            if (!hotRedisKeys.contains(redisKey)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public RedisCacheStats getStats() {
+        CacheStats stats = cache.getStats();
+        return new RedisCacheStats(
+                cache.getSize(),
+                cache.getMaxSize(),
+                stats.getHitCount(),
+                stats.getMissCount(),
+                stats.getEvictCount(),
+                stats.getInvalidationCount()
+        );
+    }
+}
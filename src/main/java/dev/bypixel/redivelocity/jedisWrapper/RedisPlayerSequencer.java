@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2025.
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ *  along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dev.bypixel.redivelocity.jedisWrapper;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Runs the Redis side effects of one player in the order they were submitted, while different players
+ * don't wait for each other. A task only starts once the previous task of the same player has finished,
+ * so e.g. a server switch can't be applied after the disconnect that followed it.
+ */
+class RedisPlayerSequencer {
+
+    private final Map<String, CompletableFuture<?>> tails = new ConcurrentHashMap<>();
+    private final Executor executor;
+
+    RedisPlayerSequencer(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Starts the task right away if nothing is running for the player, otherwise once the previous task finished,
+     * no matter if that one failed.
+     */
+    <T> CompletableFuture<T> submit(String playerUuid, Supplier<CompletableFuture<T>> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        CompletableFuture<?> previous = tails.put(playerUuid, result);
+        if (previous == null || previous.isDone()) {
+            start(task, result);
+        } else {
+            // hop off the thread that completed the previous task, usually the writer thread
+            previous.handleAsync((reply, e) -> {
+                start(task, result);
+                return null;
+            }, executor).exceptionally(e -> {
+                // the executor rejected the task
+                result.completeExceptionally(e);
+                return null;
+            });
+        }
+        result.whenComplete((reply, e) -> tails.remove(playerUuid, result));
+        return result;
+    }
+
+    private static <T> void start(Supplier<CompletableFuture<T>> task, CompletableFuture<T> result) {
+        try {
+            task.get().whenComplete((reply, e) -> {
+                if (e != null) {
+                    result.completeExceptionally(e);
+                } else {
+                    result.complete(reply);
+                }
+            });
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+    }
+}
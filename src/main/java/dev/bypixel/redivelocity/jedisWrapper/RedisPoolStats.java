@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2025.
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ *  along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dev.bypixel.redivelocity.jedisWrapper;
+
+import org.apache.commons.pool2.impl.GenericObjectPool;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Snapshot of the connection pool usage, used to size the pool for the expected load.
+ */
+public record RedisPoolStats(
+        int active,
+        int idle,
+        int waiters,
+        int maxTotal,
+        long meanBorrowWaitMillis,
+        long maxBorrowWaitMillis,
+        long borrowed,
+        long created,
+        long destroyed
+) {
+
+    /**
+     * Sums up the usage of several pools, e.g. the per-node pools of a cluster client.
+     */
+    public static RedisPoolStats of(Collection<? extends GenericObjectPool<?>> pools) {
+        List<RedisPoolStats> stats = pools.stream().map(RedisPoolStats::of).toList();
+        long borrowed = stats.stream().mapToLong(RedisPoolStats::borrowed).sum();
+        return new RedisPoolStats(
+                stats.stream().mapToInt(RedisPoolStats::active).sum(),
+                stats.stream().mapToInt(RedisPoolStats::idle).sum(),
+                stats.stream().mapToInt(RedisPoolStats::waiters).sum(),
+                stats.stream().mapToInt(RedisPoolStats::maxTotal).sum(),
+                borrowed == 0 ? 0 : stats.stream().mapToLong(pool -> pool.meanBorrowWaitMillis() * pool.borrowed()).sum() / borrowed,
+                stats.stream().mapToLong(RedisPoolStats::maxBorrowWaitMillis).max().orElse(0),
+                borrowed,
+                stats.stream().mapToLong(RedisPoolStats::created).sum(),
+                stats.stream().mapToLong(RedisPoolStats::destroyed).sum()
+        );
+    }
+
+    public static RedisPoolStats of(GenericObjectPool<?> pool) {
+        return new RedisPoolStats(
+                pool.getNumActive(),
+                pool.getNumIdle(),
+                pool.getNumWaiters(),
+                pool.getMaxTotal(),
+                pool.getMeanBorrowWaitDuration().toMillis(),
+                pool.getMaxBorrowWaitDuration().toMillis(),
+                pool.getBorrowedCount(),
+                pool.getCreatedCount(),
+                pool.getDestroyedCount()
+        );
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2025.
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ *  along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dev.bypixel.redivelocity.jedisWrapper;
+
+import lombok.Getter;
+
+/**
+ * Lua scripts shipped in the plugin jar. Bump the version whenever a script changes.
+ */
+@Getter
+public enum RedisScript {
+    CLEANUP_DEAD_PROXY("cleanup_dead_proxy", 8),
+    CLEANUP_PROXY_MEMBERS("cleanup_proxy_members", 5),
+    LEADER_LEASE("leader_lease", 1),
+    PLAYER_DISCONNECT("player_disconnect", 5),
+    PLAYER_LOGIN("player_login", 6),
+    PLAYER_SERVER_SWITCH("player_server_switch", 3),
+    PROXY_SHUTDOWN("proxy_shutdown", 7),
+    RECONCILE_NETWORK_COUNTERS("reconcile_network_counters", 4),
+    RECONCILE_PROXY_COUNTERS("reconcile_proxy_counters", 2),
+    UPDATE_PLAYER_COUNTERS("update_player_counters", 1);
+
+    private final String name;
+    private final int version;
+
+    RedisScript(String name, int version) {
+        this.name = name;
+        this.version = version;
+    }
+
+    public String getResourcePath() {
+        return "scripts/" + name + ".lua";
+    }
+
+    @Override
+    public String toString() {
+        return name + " v" + version;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2025.
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ *  along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dev.bypixel.redivelocity.jedisWrapper;
+
+import dev.bypixel.redivelocity.RediVelocityLogger;
+import redis.clients.jedis.UnifiedJedis;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Loads the bundled Lua scripts once and runs them by their SHA.
+ * Scripts that got flushed from the server are reloaded on the first NOSCRIPT reply.
+ */
+public class RedisScriptRegistry {
+
+    private final RediVelocityLogger rediVelocityLogger;
+    private final Map<RedisScript, String> sources = new EnumMap<>(RedisScript.class);
+    private final Map<RedisScript, String> shas = new ConcurrentHashMap<>();
+
+    public RedisScriptRegistry(RediVelocityLogger rediVelocityLogger) {
+        this.rediVelocityLogger = rediVelocityLogger;
+
+        for (RedisScript script : RedisScript.values()) {
+            sources.put(script, readSource(script));
+        }
+    }
+
+    /**
+     * Loads all scripts on the node owning the sample key. Other cluster nodes load them on their first NOSCRIPT reply.
+     */
+    public void loadAll(UnifiedJedis client, String sampleKey) {
+        for (RedisScript script : RedisScript.values()) {
+            load(client, script, sampleKey);
+        }
+    }
+
+    /**
+     * The SHA of a loaded script, or null if it wasn't loaded yet.
+     */
+    public String getSha(RedisScript script) {
+        return shas.get(script);
+    }
+
+    public Object eval(UnifiedJedis client, RedisScript script, List<String> keys, List<String> args) {
+        String sampleKey = keys.get(0);
+        String sha = shas.get(script);
+        if (sha == null) {
+            sha = load(client, script, sampleKey);
+        }
+
+        try {
+            return client.evalsha(sha, keys, args);
+        } catch (JedisNoScriptException e) {
+            rediVelocityLogger.sendLogs("Script " + script + " is missing on the Redis server, reloading it...");
+            return client.evalsha(load(client, script, sampleKey), keys, args);
+        }
+    }
+
+    private String load(UnifiedJedis client, RedisScript script, String sampleKey) {
+        String sha = client.scriptLoad(sources.get(script), sampleKey);
+        shas.put(script, sha);
+        return sha;
+    }
+
+    private String readSource(RedisScript script) {
+        try (InputStream inputStream = RedisScriptRegistry.class.getClassLoader().getResourceAsStream(script.getResourcePath())) {
+            if (inputStream == null) {
+                throw new IllegalStateException("Lua script " + script.getResourcePath() + " is missing from the plugin jar");
+            }
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read Lua script " + script.getResourcePath(), e);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2025.
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ *  along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dev.bypixel.redivelocity.jedisWrapper;
+
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+/**
+ * Thrown without contacting Redis while the circuit breaker is open.
+ */
+public class RedisUnavailableException extends JedisConnectionException {
+
+    private static final long serialVersionUID = 1L;
+
+    public RedisUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -16,19 +16,17 @@
 
 package dev.bypixel.redivelocity.listeners;
 
+import com.velocitypowered.api.event.EventTask;
 import com.velocitypowered.api.event.Subscribe;
 import com.velocitypowered.api.event.connection.DisconnectEvent;
-import com.velocitypowered.api.proxy.ProxyServer;
 import dev.bypixel.redivelocity.RediVelocity;
 import dev.bypixel.redivelocity.RediVelocityLogger;
 import dev.bypixel.redivelocity.config.Config;
 import dev.bypixel.redivelocity.jedisWrapper.RedisController;
+import dev.bypixel.redivelocity.services.ServerSwitchCoalescer;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 
-import java.util.Map;
-import java.util.concurrent.CompletableFuture;
-
 @Singleton
 public class DisconnectListener {
 
@@ -37,55 +35,46 @@ public class DisconnectListener {
     private final String proxyId;
     private final RediVelocity rediVelocity;
     private final RediVelocityLogger logger;
-    private final ProxyServer proxy;
+    private final ServerSwitchCoalescer coalescer;
 
     @Inject
-    public DisconnectListener(Config config, RedisController redisController, RediVelocity rediVelocity, RediVelocityLogger logger, ProxyServer proxy) {
+    public DisconnectListener(Config config, RedisController redisController, RediVelocity rediVelocity, RediVelocityLogger logger, ServerSwitchCoalescer coalescer) {
         this.config = config;
         this.redisController = redisController;
         this.proxyId = rediVelocity.getProxyId();
         this.rediVelocity = rediVelocity;
         this.logger = logger;
-        this.proxy = proxy;
+        this.coalescer = coalescer;
     }
 
     @SuppressWarnings("unused")
-    @Subscribe
-    public void onDisconnectEvent(DisconnectEvent event) {
+    @Subscribe(async = false)
+    public EventTask onDisconnectEvent(DisconnectEvent event) {
         var player = event.getPlayer();
         var redisConfig = config.getRedis();
 
-        CompletableFuture.runAsync(() -> {
-            redisController.sendJsonMessage(
-                    "disconnect",
-                    rediVelocity.getProxyId(),
-                    player.getUsername(),
-                    player.getUniqueId().toString(),
-                    player.getClientBrand(),
-                    player.getRemoteAddress().toString().split(":")[0].substring(1),
-                    redisConfig.getChannel()
-            );
-
-            redisController.deleteHashField("rv-players-proxy", player.getUniqueId().toString());
-            redisController.deleteHashField("rv-players-name", player.getUniqueId().toString());
-            redisController.setHashField("rv-players-lastseen", player.getUniqueId().toString(), String.valueOf(System.currentTimeMillis()));
-            redisController.deleteHashField("rv-players-server", player.getUniqueId().toString());
+        String uuid = player.getUniqueId().toString();
+        String message = redisController.createJsonMessage(
+                "disconnect",
+                rediVelocity.getProxyId(),
+                player.getUsername(),
+                uuid,
+                player.getClientBrand(),
+                player.getRemoteAddress().toString().split(":")[0].substring(1)
+        );
 
-            redisController.setHashField("rv-proxy-players", proxyId, proxy.getAllPlayers().size() + "");
+        // a merged server switch still waiting for its window is sent before the player is unregistered
+        coalescer.flush(uuid);
 
-            Map<String, String> proxyPlayers = redisController.getHashValuesAsPair("rv-players-proxy");
-            int values = proxyPlayers.values().stream()
-                    .filter(value -> value.equals(proxyId))
-                    .toList()
-                    .size();
-            redisController.setHashField("rv-proxy-players", proxyId, String.valueOf(values));
+        if (!redisController.isAvailable()) {
+            // removed by the re-sync once Redis is back, the event waits in the journal
+            redisController.publishAsync(redisConfig.getChannel(), message);
+            return null;
+        }
 
-            Map<String, String> proxyPlayersMap = redisController.getHashValuesAsPair("rv-players-name");
-            int sum = proxyPlayersMap.size();
-            redisController.setString("rv-global-playercount", String.valueOf(sum));
-        }).exceptionally(ex -> {
+        return EventTask.resumeWhenComplete(redisController.disconnectPlayerAsync(uuid, player.getUsername(), proxyId, redisConfig.getChannel(), message).exceptionally(ex -> {
             logger.sendErrorLogs("Error while sending disconnect Redis message " + ex.getMessage());
             return null;
-        });
+        }));
     }
 }
\ No newline at end of file
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2025.
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ *  along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dev.bypixel.redivelocity.listeners;
+
+import com.velocitypowered.api.event.EventTask;
+import com.velocitypowered.api.event.ResultedEvent;
+import com.velocitypowered.api.event.Subscribe;
+import com.velocitypowered.api.event.connection.LoginEvent;
+import com.velocitypowered.api.proxy.ProxyServer;
+import dev.bypixel.redivelocity.RediVelocity;
+import dev.bypixel.redivelocity.RediVelocityLogger;
+import dev.bypixel.redivelocity.config.Config;
+import dev.bypixel.redivelocity.jedisWrapper.RedisController;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds new logins back while Redis is slow or its queues are backed up, and rejects them
+ * if Redis doesn't recover in time. Players that are already online aren't affected.
+ */
+@Singleton
+public class LoginAdmissionListener {
+
+    private static final long RECHECK_INTERVAL_MILLIS = 250;
+
+    private final RediVelocity rediVelocity;
+    private final Config.LoginAdmissionConfig admissionConfig;
+    private final RedisController redisController;
+    private final RediVelocityLogger logger;
+    private final ProxyServer proxy;
+    private final boolean debugMode;
+
+    @Inject
+    public LoginAdmissionListener(RediVelocity rediVelocity, Config config, RedisController redisController, RediVelocityLogger logger, ProxyServer proxy) {
+        this.rediVelocity = rediVelocity;
+        this.admissionConfig = config.getLoginAdmission();
+        this.redisController = redisController;
+        this.logger = logger;
+        this.proxy = proxy;
+        this.debugMode = config.isDebugMode();
+    }
+
+    @SuppressWarnings("unused")
+    @Subscribe(async = false)
+    public EventTask onLogin(LoginEvent event) {
+        if (!event.getResult().isAllowed() || !isOverloaded()) {
+            return null;
+        }
+
+        CompletableFuture<Void> decided = new CompletableFuture<>();
+        awaitCapacity(event, System.currentTimeMillis() + admissionConfig.getMaxDelayMillis(), decided);
+        return EventTask.resumeWhenComplete(decided);
+    }
+
+    private void awaitCapacity(LoginEvent event, long deadline, CompletableFuture<Void> decided) {
+        if (!isOverloaded()) {
+            decided.complete(null);
+            return;
+        }
+        if (System.currentTimeMillis() >= deadline) {
+            if (debugMode) {
+                logger.sendLogs("Rejected login of " + event.getPlayer().getUsername() + ", Redis is overloaded (" + redisController.getWriteLatencyMillis() + "ms latency, " + getPendingCommands() + " pending commands).");
+            }
+            event.setResult(ResultedEvent.ComponentResult.denied(MiniMessage.miniMessage().deserialize(admissionConfig.getKickMessage())));
+            decided.complete(null);
+            return;
+        }
+        proxy.getScheduler().buildTask(rediVelocity, () -> awaitCapacity(event, deadline, decided))
+                .delay(RECHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)
+                .schedule();
+    }
+
+    /**
+     * Redis being down is handled by the degraded mode, not by holding logins back.
+     */
+    private boolean isOverloaded() {
+        if (!redisController.isAvailable()) {
+            return false;
+        }
+        return redisController.getWriteLatencyMillis() > admissionConfig.getMaxRedisLatencyMillis()
+                || getPendingCommands() > admissionConfig.getMaxPendingCommands();
+    }
+
+    private int getPendingCommands() {
+        return redisController.getCommandQueueSize() + redisController.getExecutorStats().pending();
+    }
+}
@@ -16,9 +16,9 @@
 
 package dev.bypixel.redivelocity.listeners;
 
+import com.velocitypowered.api.event.EventTask;
 import com.velocitypowered.api.event.Subscribe;
 import com.velocitypowered.api.event.connection.PostLoginEvent;
-import com.velocitypowered.api.proxy.ProxyServer;
 import dev.bypixel.redivelocity.RediVelocity;
 import dev.bypixel.redivelocity.RediVelocityLogger;
 import dev.bypixel.redivelocity.config.Config;
@@ -28,10 +28,6 @@ import jakarta.inject.Singleton;
 import net.kyori.adventure.text.minimessage.MiniMessage;
 
 import java.util.List;
-import java.util.Map;
-import java.util.Objects;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 @Singleton
 public class PostLoginListener {
@@ -41,27 +37,24 @@ public class PostLoginListener {
     private final RedisController redisController;
     private final String proxyId;
     private final RediVelocity rediVelocity;
-    private final ExecutorService redisExecutor = Executors.newFixedThreadPool(5);
     private final RediVelocityLogger logger;
-    private final ProxyServer proxy;
 
     @Inject
-    public PostLoginListener(RediVelocity rediVelocity, Config config, RedisController redisController, RediVelocityLogger logger, ProxyServer proxy) {
+    public PostLoginListener(RediVelocity rediVelocity, Config config, RedisController redisController, RediVelocityLogger logger) {
         this.config = config;
         this.redisController = redisController;
         this.proxyId = rediVelocity.getProxyId();
         this.rediVelocity = rediVelocity;
         this.logger = logger;
-        this.proxy = proxy;
     }
 
-    @Subscribe
-    public void onPostLogin(PostLoginEvent event) {
+    @Subscribe(async = false)
+    public EventTask onPostLogin(PostLoginEvent event) {
         var player = event.getPlayer();
 
-        if (Objects.equals(redisController.getString("rv-init-process"), "true")) {
+        if (rediVelocity.isInitializing()) {
             player.disconnect(MiniMessage.miniMessage().deserialize("<red>Proxy is booting up, please wait..."));
-            return;
+            return null;
         }
 
         if (config.getVersionControl().isEnabled()) {
@@ -70,43 +63,31 @@ public class PostLoginListener {
             if (!requiredProtocolVersions.contains(playerProtocolVersion)) {
                 if (!player.hasPermission("redivelocity.admin.version.bypass")) {
                     player.disconnect(miniMessage.deserialize(config.getVersionControl().getKickMessage()));
-                    return;
+                    return null;
                 }
             }
         }
 
-        redisExecutor.submit(() -> {
-            try {
-                redisController.setHashField("rv-players-proxy", player.getUniqueId().toString(), proxyId);
+        var redisConfig = config.getRedis();
+        String uuid = player.getUniqueId().toString();
+        String address = player.getRemoteAddress().toString().split(":")[0].substring(1);
+        String message = redisController.createPostLoginMessage(
+                "postLogin",
+                rediVelocity.getProxyId(),
+                player.getUsername(),
+                uuid,
+                address
+        );
 
-                var redisConfig = config.getRedis();
-                redisController.sendPostLoginMessage(
-                        "postLogin",
-                        rediVelocity.getProxyId(),
-                        player.getUsername(),
-                        player.getUniqueId().toString(),
-                        player.getRemoteAddress().toString().split(":")[0].substring(1),
-                        redisConfig.getChannel()
-                );
-
-                redisController.setHashField("rv-proxy-players", proxyId, proxy.getAllPlayers().size() + "");
-
-                redisController.setHashField("rv-players-name", player.getUniqueId().toString(), player.getUsername());
-                redisController.setHashField("rv-players-ip", player.getUniqueId().toString(), player.getRemoteAddress().toString().split(":")[0].substring(1));
-
-                Map<String, String> proxyPlayers = redisController.getHashValuesAsPair("rv-players-proxy");
-                int values = proxyPlayers.values().stream()
-                        .filter(value -> value.equals(proxyId))
-                        .toList()
-                        .size();
-                redisController.setHashField("rv-proxy-players", proxyId, String.valueOf(values));
+        if (!redisController.isAvailable()) {
+            // registered by the re-sync once Redis is back, the event waits in the journal
+            redisController.publishAsync(redisConfig.getChannel(), message);
+            return null;
+        }
 
-                Map<String, String> proxyPlayersMap = redisController.getHashValuesAsPair("rv-players-name");
-                int sum = proxyPlayersMap.size();
-                redisController.setString("rv-global-playercount", String.valueOf(sum));
-            } catch (Exception ex) {
-                logger.sendErrorLogs("Error while sending post login Redis message " + ex.getMessage());
-            }
-        });
+        return EventTask.resumeWhenComplete(redisController.loginPlayerAsync(uuid, player.getUsername(), proxyId, address, redisConfig.getChannel(), message).exceptionally(ex -> {
+            logger.sendErrorLogs("Error while sending post login Redis message " + ex.getMessage());
+            return null;
+        }));
     }
 }
\ No newline at end of file
@@ -16,14 +16,14 @@
 
 package dev.bypixel.redivelocity.listeners;
 
+import com.velocitypowered.api.event.EventTask;
 import com.velocitypowered.api.event.Subscribe;
 import com.velocitypowered.api.event.proxy.ProxyPingEvent;
+import dev.bypixel.redivelocity.jedisWrapper.ReadConsistency;
 import dev.bypixel.redivelocity.jedisWrapper.RedisController;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 
-import java.util.List;
-
 @Singleton
 public class ProxyPingListener {
 
@@ -34,16 +34,17 @@ public class ProxyPingListener {
         this.redisController = redisController;
     }
 
-    @Subscribe()
+    @Subscribe(async = false)
     @SuppressWarnings("unused")
-    public void onProxyPing(ProxyPingEvent event) {
-        List<Integer> proxyPlayersMap = redisController.getAllHashValues("rv-proxy-players").stream()
-                .map(Integer::parseInt)
-                .toList();
-        int sum = proxyPlayersMap.stream().mapToInt(Integer::intValue).sum();
-        
-        var ping = event.getPing().asBuilder();
-        ping.onlinePlayers(sum);
-        event.setPing(ping.build());
+    public EventTask onProxyPing(ProxyPingEvent event) {
+        if (!redisController.isAvailable()) {
+            // degraded mode, Velocity's own count of this proxy is the best there is
+            return null;
+        }
+        return EventTask.resumeWhenComplete(redisController.getStringAsync("rv-global-playercount", ReadConsistency.REPLICA).thenAccept(globalPlayers -> {
+            var ping = event.getPing().asBuilder();
+            ping.onlinePlayers(globalPlayers == null ? 0 : Integer.parseInt(globalPlayers));
+            event.setPing(ping.build());
+        }).exceptionally(ex -> null)); // keep Velocity's own count if Redis is unavailable
     }
 }
\ No newline at end of file
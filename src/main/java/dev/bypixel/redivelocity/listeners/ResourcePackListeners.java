@@ -22,24 +22,24 @@ import com.velocitypowered.api.event.player.configuration.PlayerFinishConfigurat
 import com.velocitypowered.api.proxy.Player;
 import com.velocitypowered.api.proxy.ProxyServer;
 import com.velocitypowered.api.proxy.player.ResourcePackInfo;
+import dev.bypixel.redivelocity.RediVelocity;
 import dev.bypixel.redivelocity.config.Config;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 import net.kyori.adventure.text.minimessage.MiniMessage;
 
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 @Singleton
 public class ResourcePackListeners {
+    private final RediVelocity rediVelocity;
     private final ProxyServer proxy;
     private final Config config;
     private final MiniMessage miniMessage = MiniMessage.miniMessage();
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
 
     @Inject
-    public ResourcePackListeners(ProxyServer proxy, Config config) {
+    public ResourcePackListeners(RediVelocity rediVelocity, ProxyServer proxy, Config config) {
+        this.rediVelocity = rediVelocity;
         this.proxy = proxy;
         this.config = config;
     }
@@ -58,11 +58,12 @@ public class ResourcePackListeners {
         ResourcePackInfo pack = createPackRequest(player);
         player.sendResourcePacks(pack);
 
-        scheduler.scheduleAtFixedRate(() -> {
-            if (!player.getAppliedResourcePacks().isEmpty()) {
+        proxy.getScheduler().buildTask(rediVelocity, task -> {
+            // a player that left before applying the pack would otherwise keep the task running
+            if (!player.getAppliedResourcePacks().isEmpty() || !player.isActive()) {
                 continuation.resume();
-                scheduler.shutdown();
+                task.cancel();
             }
-        }, 0, 100, TimeUnit.MILLISECONDS);
+        }).repeat(100, TimeUnit.MILLISECONDS).schedule();
     }
 }
\ No newline at end of file
@@ -16,20 +16,19 @@
 
 package dev.bypixel.redivelocity.listeners;
 
+import com.velocitypowered.api.event.EventTask;
 import com.velocitypowered.api.event.Subscribe;
 import com.velocitypowered.api.event.player.ServerConnectedEvent;
 import dev.bypixel.redivelocity.RediVelocity;
 import dev.bypixel.redivelocity.RediVelocityLogger;
 import dev.bypixel.redivelocity.config.Config;
 import dev.bypixel.redivelocity.jedisWrapper.RedisController;
+import dev.bypixel.redivelocity.services.ServerSwitchCoalescer;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 import net.kyori.adventure.text.minimessage.MiniMessage;
 
-import java.util.Objects;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.function.Function;
 
 @Singleton
 public class ServerSwitchListener {
@@ -37,47 +36,53 @@ public class ServerSwitchListener {
     private final RediVelocity rediVelocity;
     private final Config config;
     private final RedisController redisController;
-    private final ExecutorService redisExecutor = Executors.newFixedThreadPool(5);
     private final RediVelocityLogger logger;
+    private final ServerSwitchCoalescer coalescer;
 
     @Inject
-    public ServerSwitchListener(RediVelocity rediVelocity, Config config, RedisController redisController, RediVelocityLogger logger) {
+    public ServerSwitchListener(RediVelocity rediVelocity, Config config, RedisController redisController, RediVelocityLogger logger, ServerSwitchCoalescer coalescer) {
         this.rediVelocity = rediVelocity;
         this.config = config;
         this.redisController = redisController;
         this.logger = logger;
+        this.coalescer = coalescer;
     }
 
     @SuppressWarnings("unused")
-    @Subscribe
-    public void onServerSwitch(ServerConnectedEvent event) {
+    @Subscribe(async = false)
+    public EventTask onServerSwitch(ServerConnectedEvent event) {
         var player = event.getPlayer();
 
-        if (Objects.equals(redisController.getString("rv-init-process"), "true")) {
+        if (rediVelocity.isInitializing()) {
             player.disconnect(MiniMessage.miniMessage().deserialize("<red>Proxy is booting up, please wait..."));
-            return;
+            return null;
         }
 
         var previousServerName = event.getPreviousServer().map(server -> server.getServerInfo().getName()).orElse("null");
         var redisConfig = config.getRedis();
 
-        CompletableFuture.runAsync(() -> {
-            redisController.sendServerSwitchMessage(
-                    "serverSwitch",
-                    rediVelocity.getProxyId(),
-                    player.getUsername(),
-                    player.getUniqueId().toString(),
-                    player.getClientBrand(),
-                    player.getRemoteAddress().toString().split(":")[0].substring(1),
-                    event.getServer().getServerInfo().getName() != null ? event.getServer().getServerInfo().getName() : "null",
-                    previousServerName,
-                    redisConfig.getChannel()
-            );
+        String uuid = player.getUniqueId().toString();
+        String serverName = event.getServer().getServerInfo().getName();
+        Function<String, String> message = previous -> redisController.createServerSwitchMessage(
+                "serverSwitch",
+                rediVelocity.getProxyId(),
+                player.getUsername(),
+                uuid,
+                player.getClientBrand(),
+                player.getRemoteAddress().toString().split(":")[0].substring(1),
+                serverName != null ? serverName : "null",
+                previous
+        );
+
+        if (!redisController.isAvailable()) {
+            // updated by the re-sync once Redis is back, the event waits in the journal
+            redisController.publishAsync(redisConfig.getChannel(), message.apply(previousServerName));
+            return null;
+        }
 
-            redisController.setHashField("rv-players-server", player.getUniqueId().toString(), event.getServer().getServerInfo().getName());
-        }, redisExecutor).exceptionally(ex -> {
+        return EventTask.resumeWhenComplete(coalescer.submit(uuid, serverName, previousServerName, message).exceptionally(ex -> {
             logger.sendErrorLogs("Error while sending server switch Redis message " + ex.getMessage());
             return null;
-        });
+        }));
     }
-}
\ No newline at end of file
+}
@@ -17,83 +17,128 @@
 package dev.bypixel.redivelocity.services;
 
 import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.scheduler.ScheduledTask;
 import dev.bypixel.redivelocity.RediVelocity;
 import dev.bypixel.redivelocity.RediVelocityLogger;
 import dev.bypixel.redivelocity.jedisWrapper.RedisController;
+import dev.bypixel.redivelocity.jedisWrapper.RedisScript;
 import jakarta.inject.Inject;
 
-import java.security.SecureRandom;
-import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 public class HeartbeatService {
     private final RedisController redisController;
+    private final HousekeepingShards housekeeping;
     private final String proxyId;
     private final RediVelocityLogger logger;
     private final ProxyServer proxy;
     private final RediVelocity rediVelocity;
+    private final long intervalMillis;
+    private final long timeoutMillis;
     private final boolean debugMode;
+    private ScheduledTask heartbeatTask;
 
     @Inject
-    public HeartbeatService(RedisController redisController, String proxyId, RediVelocityLogger logger, RediVelocity rediVelocity, ProxyServer proxy, boolean debugMode) {
+    public HeartbeatService(RedisController redisController, HousekeepingShards housekeeping, String proxyId, RediVelocityLogger logger, RediVelocity rediVelocity, ProxyServer proxy, long intervalMillis, long timeoutMillis, boolean debugMode) {
         this.redisController = redisController;
+        this.housekeeping = housekeeping;
         this.proxyId = proxyId;
         this.logger = logger;
         this.proxy = proxy;
         this.rediVelocity = rediVelocity;
+        this.intervalMillis = Math.max(1000, intervalMillis);
+        this.timeoutMillis = Math.max(this.intervalMillis * 2, timeoutMillis);
         this.debugMode = debugMode;
     }
 
     public void startHeartbeatService() {
-        proxy.getScheduler().buildTask(rediVelocity, () -> {
-            redisController.setHashField("rv-proxy-heartbeat", proxyId, String.valueOf(System.currentTimeMillis()));
-
-            String currentLeader = redisController.getString("rv-proxy-leader");
-            if (proxyId.equals(currentLeader)) {
-                Set<String> registeredProxies = redisController.getAllHashFields("rv-proxies");
-
-                for (String proxy : registeredProxies) {
-                    String lastHeartbeat = redisController.getHashField("rv-proxy-heartbeat", proxy);
-
-                    if (lastHeartbeat == null) {
-                        cleanupDeadProxy(proxy);
-                        continue;
-                    }
-
-                    long lastBeat = Long.parseLong(lastHeartbeat);
-                    if (System.currentTimeMillis() - lastBeat > 30000) {
-                        logger.sendLogs("Proxy " + proxy + " did not send a heartbeat for 30 seconds. Cleaning up...");
-                        cleanupDeadProxy(proxy);
-                    }
-                }
+        heartbeatTask = proxy.getScheduler().buildTask(rediVelocity, () -> {
+            if (!redisController.isAvailable()) {
+                return;
             }
-        }).repeat(10, TimeUnit.SECONDS).schedule();
+            // a failed beat must not end the task, the next one retries
+            try {
+                beat();
+            } catch (Exception e) {
+                logger.sendErrorLogs("Error while sending the heartbeat " + e.getMessage());
+            }
+        }).repeat(intervalMillis, TimeUnit.MILLISECONDS).schedule();
     }
 
-    private void cleanupDeadProxy(String deadProxyId) {
-        logger.sendLogs("Removing dead proxy: " + deadProxyId);
+    private void beat() {
+        long now = System.currentTimeMillis();
+        redisController.addToSortedSet(RedisController.RV_PROXY_HEARTBEAT, now, proxyId);
+
+        // the proxies that are alive share the per-proxy housekeeping
+        long deadline = now - timeoutMillis;
+        housekeeping.update(redisController.getSortedSetRangeByScore(RedisController.RV_PROXY_HEARTBEAT, deadline, Double.POSITIVE_INFINITY));
 
-        redisController.deleteHashField("rv-proxies", deadProxyId);
-        redisController.deleteHashField("rv-proxy-players", deadProxyId);
-        redisController.deleteHashField("rv-proxy-heartbeat", deadProxyId);
-        redisController.deleteHashField("rv-proxy-votes", deadProxyId);
-        redisController.deleteHashFieldByBalue("rv-players-proxy", deadProxyId);
-
-        String currentLeader = redisController.getString("rv-proxy-leader");
-        if (deadProxyId.equals(currentLeader)) {
-            Set<String> remainingProxies = redisController.getAllHashFields("rv-proxies");
-            if (!remainingProxies.isEmpty()) {
-                List<String> proxyList = new ArrayList<>(remainingProxies);
-                String newLeader = proxyList.get(new SecureRandom().nextInt(proxyList.size()));
-                redisController.setString("rv-proxy-leader", newLeader);
-                if (debugMode) {
-                    logger.sendLogs("New leader after proxy crash: " + newLeader);
-                }
-            } else {
-                redisController.deleteString("rv-proxy-leader");
+        adoptProxiesWithoutHeartbeat(now);
+
+        // heartbeats are scored by time, so the expired proxies are a single range query
+        List<String> deadProxies = redisController.getSortedSetRangeByScore(RedisController.RV_PROXY_HEARTBEAT, Double.NEGATIVE_INFINITY, deadline - 1);
+        for (String deadProxy : deadProxies) {
+            if (!housekeeping.owns(HousekeepingShards.proxyDuty(deadProxy))) {
+                continue;
             }
+            logger.sendLogs("Proxy " + deadProxy + " did not send a heartbeat for " + timeoutMillis / 1000 + " seconds. Cleaning up...");
+            cleanupDeadProxy(deadProxy, deadline);
+        }
+    }
+
+    /**
+     * Stops sending heartbeats, so a proxy that shuts down doesn't show up as alive again.
+     */
+    public void stop() {
+        if (heartbeatTask != null) {
+            heartbeatTask.cancel();
+        }
+    }
+
+    /**
+     * Gives registered proxies without a heartbeat one, so they time out like every other proxy.
+     * That only happens after the heartbeat key was lost or repaired, the sizes tell if it's needed.
+     * Each proxy is adopted by the owner of its duty.
+     */
+    private void adoptProxiesWithoutHeartbeat(long now) {
+        // the proxy list rarely changes and is served by the near cache when it's enabled
+        Set<String> registeredProxies = redisController.getAllHashFields("rv-proxies");
+        if (registeredProxies.size() <= redisController.getSortedSetSize(RedisController.RV_PROXY_HEARTBEAT)) {
+            return;
+        }
+
+        Set<String> beating = new HashSet<>(redisController.getSortedSetRangeByScore(RedisController.RV_PROXY_HEARTBEAT, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY));
+        for (String registeredProxy : registeredProxies) {
+            if (!beating.contains(registeredProxy) && housekeeping.owns(HousekeepingShards.proxyDuty(registeredProxy))) {
+                redisController.addToSortedSet(RedisController.RV_PROXY_HEARTBEAT, now, registeredProxy);
+            }
+        }
+    }
+
+    private void cleanupDeadProxy(String deadProxyId, long deadline) {
+        logger.sendLogs("Removing dead proxy: " + deadProxyId);
+
+        // players first, so a crash in between leaves the proxy registered and the next tick retries.
+        // Both steps check the heartbeat before removing anything, a proxy that came back keeps its players.
+        long removedPlayers = redisController.cleanupProxyMembers(deadProxyId, deadline);
+        if (removedPlayers < 0) {
+            logger.sendLogs("Stopped the removal of proxy " + deadProxyId + ", it sent a heartbeat again.");
+            return;
+        }
+
+        Object removed = redisController.runScript(
+                RedisScript.CLEANUP_DEAD_PROXY,
+                List.of("rv-proxies", "rv-proxy-players", RedisController.RV_PROXY_HEARTBEAT),
+                List.of(deadProxyId, String.valueOf(deadline))
+        );
+
+        if (!Long.valueOf(1).equals(removed)) {
+            logger.sendLogs("Skipped the removal of proxy " + deadProxyId + ", it sent a heartbeat again or another proxy removed it.");
+        } else if (debugMode) {
+            logger.sendLogs("Removed " + removedPlayers + " players of dead proxy " + deadProxyId + ".");
         }
     }
 }
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2025.
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ *  along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package dev.bypixel.redivelocity.services;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Splits the per-proxy housekeeping into duties and assigns each one to a live proxy with rendezvous hashing.
+ * Every proxy derives the same owner from the same live proxies without any coordination, and when a proxy
+ * joins or dies only the duties it wins or owned move to another proxy.
+ * Two proxies may briefly both own a duty while their views of the live proxies differ, so every duty has to be safe to run twice.
+ * A dead proxy is removed by the owner of its duty. Every step of the removal checks that the proxy still has no
+ * fresh heartbeat, so an owner that is behind can't remove a proxy that came back.
+ * Only the network-wide counters, a single job over all proxies, stay with the leader and its fencing token.
+ */
+public class HousekeepingShards {
+
+    private final String proxyId;
+    private volatile Set<String> liveProxies;
+
+    public HousekeepingShards(String proxyId) {
+        this.proxyId = proxyId;
+        this.liveProxies = Set.of(proxyId);
+    }
+
+    /**
+     * Reconciles the counters of the proxy while it's alive, gives it a heartbeat if it has none and removes it once it's dead.
+     */
+    public static String proxyDuty(String proxyId) {
+        return "proxy:" + proxyId;
+    }
+
+    /**
+     * Replaces the live proxies the duties are assigned to, this proxy always counts as live.
+     */
+    public void update(Collection<String> proxies) {
+        Set<String> live = new HashSet<>(proxies);
+        live.add(proxyId);
+        liveProxies = Set.copyOf(live);
+    }
+
+    public Set<String> getLiveProxies() {
+        return liveProxies;
+    }
+
+    public boolean isLive(String proxy) {
+        return liveProxies.contains(proxy);
+    }
+
+    public boolean owns(String duty) {
+        return proxyId.equals(owner(liveProxies, duty));
+    }
+
+    /**
+     * The proxy with the highest weight for the duty, or null without proxies.
+     */
+    public static String owner(Collection<String> proxies, String duty) {
+        String owner = null;
+        long ownerWeight = 0;
+        for (String proxy : proxies) {
+            long weight = weight(proxy, duty);
+            if (owner == null || weight > ownerWeight || (weight == ownerWeight && proxy.compareTo(owner) < 0)) {
+                owner = proxy;
+                ownerWeight = weight;
+            }
+        }
+        return owner;
+    }
+
+    /**
+     * FNV-1a over both ids, finished with the MurmurHash3 mixer so proxies with similar ids get unrelated weights.
+     */
+    static long weight(String proxy, String duty) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : (proxy + '\n' + duty).getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2025.
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ *  along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package dev.bypixel.redivelocity.services;
+
+import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.scheduler.ScheduledTask;
+import dev.bypixel.redivelocity.RediVelocity;
+import dev.bypixel.redivelocity.RediVelocityLogger;
+import dev.bypixel.redivelocity.jedisWrapper.RedisController;
+import dev.bypixel.redivelocity.jedisWrapper.RedisScript;
+import jakarta.inject.Inject;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Elects the leader with a lease on rv-proxy-leader. Every proxy tries to take the lease once it expired and the
+ * holder renews it three times per lease time, so a leader that dies is replaced within one lease time.
+ * Each new lease increments rv-proxy-leader-token. Leader-only jobs pass that fencing token along with their writes,
+ * so a leader that lost its lease without noticing (e.g. after a long pause) can't overwrite its successor's work.
+ */
+public class LeaderLeaseService {
+
+    public static final long NO_TOKEN = -1;
+
+    private final RedisController redisController;
+    private final String proxyId;
+    private final RediVelocityLogger logger;
+    private final RediVelocity rediVelocity;
+    private final ProxyServer proxy;
+    private final long leaseMillis;
+    private final boolean debugMode;
+    private volatile long fencingToken = NO_TOKEN;
+    private volatile long leaseDeadline;
+    private ScheduledTask renewTask;
+
+    @Inject
+    public LeaderLeaseService(RedisController redisController, String proxyId, RediVelocityLogger logger, RediVelocity rediVelocity, ProxyServer proxy, long leaseMillis, boolean debugMode) {
+        this.redisController = redisController;
+        this.proxyId = proxyId;
+        this.logger = logger;
+        this.rediVelocity = rediVelocity;
+        this.proxy = proxy;
+        this.leaseMillis = Math.max(3000, leaseMillis);
+        this.debugMode = debugMode;
+    }
+
+    public void start() {
+        renewTask = proxy.getScheduler().buildTask(rediVelocity, this::renew).repeat(leaseMillis / 3, TimeUnit.MILLISECONDS).schedule();
+    }
+
+    /**
+     * Stops renewing, the lease itself is given up by the proxy shutdown script.
+     */
+    public void stop() {
+        if (renewTask != null) {
+            renewTask.cancel();
+        }
+        fencingToken = NO_TOKEN;
+    }
+
+    /**
+     * True while this proxy holds a lease that hasn't run out yet, measured from when it was last renewed.
+     */
+    public boolean isLeader() {
+        return fencingToken != NO_TOKEN && System.currentTimeMillis() < leaseDeadline;
+    }
+
+    /**
+     * The fencing token of the current lease, or {@link #NO_TOKEN} if this proxy isn't the leader.
+     */
+    public long getFencingToken() {
+        return isLeader() ? fencingToken : NO_TOKEN;
+    }
+
+    private void renew() {
+        if (!redisController.isAvailable()) {
+            // the lease runs out on its own, isLeader turns false once it's over
+            return;
+        }
+        long requestedAt = System.currentTimeMillis();
+        try {
+            Object result = redisController.runScript(
+                    RedisScript.LEADER_LEASE,
+                    List.of("rv-proxy-leader", RedisController.RV_PROXY_LEADER_TOKEN),
+                    List.of(proxyId, String.valueOf(leaseMillis))
+            );
+            if (!(result instanceof List<?> reply) || !Long.valueOf(1).equals(reply.get(0))) {
+                if (fencingToken != NO_TOKEN && debugMode) {
+                    logger.sendLogs("This proxy (" + proxyId + ") lost the leader lease.");
+                }
+                fencingToken = NO_TOKEN;
+                return;
+            }
+
+            long token = Long.parseLong(String.valueOf(reply.get(1)));
+            if (token != fencingToken && debugMode) {
+                logger.sendLogs("This proxy (" + proxyId + ") is now the leader with fencing token " + token + ".");
+            }
+            leaseDeadline = requestedAt + leaseMillis;
+            fencingToken = token;
+        } catch (Exception e) {
+            logger.sendErrorLogs("Error while renewing the leader lease " + e.getMessage());
+        }
+    }
+}
@@ -22,37 +22,59 @@ import dev.bypixel.redivelocity.RediVelocityLogger;
 import dev.bypixel.redivelocity.jedisWrapper.RedisController;
 import jakarta.inject.Inject;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 public class PlayerCalcService {
 
     private final RedisController redisController;
-    private final String proxyId;
+    private final LeaderLeaseService leaderLease;
+    private final HousekeepingShards housekeeping;
     private final RediVelocityLogger logger;
     private final RediVelocity rediVelocity;
-    private final ExecutorService redisExecutor = Executors.newFixedThreadPool(5);
     private final ProxyServer proxy;
+    private final long heartbeatTimeoutMillis;
+    private final boolean debugMode;
 
     @Inject
-    public PlayerCalcService(RedisController redisController, String proxyId, RediVelocityLogger logger, RediVelocity rediVelocity, ProxyServer proxy) {
+    public PlayerCalcService(RedisController redisController, LeaderLeaseService leaderLease, HousekeepingShards housekeeping, RediVelocityLogger logger, RediVelocity rediVelocity, ProxyServer proxy, long heartbeatTimeoutMillis, boolean debugMode) {
         this.redisController = redisController;
-        this.proxyId = proxyId;
+        this.leaderLease = leaderLease;
+        this.housekeeping = housekeeping;
         this.logger = logger;
         this.rediVelocity = rediVelocity;
         this.proxy = proxy;
+        this.heartbeatTimeoutMillis = heartbeatTimeoutMillis;
+        this.debugMode = debugMode;
     }
 
+    /**
+     * The player and server counters are updated incrementally on every login, switch and disconnect,
+     * the housekeeping only corrects drift, e.g. from crashed proxies or lost replies.
+     * Each live proxy's counters are reconciled by the owner of its duty, the network-wide ones by the leader.
+     */
     public void startCalc() {
         rediVelocity.proxy.getScheduler().buildTask(rediVelocity, () -> {
-            redisExecutor.submit(() -> {
-                try {
-                    redisController.setHashField("rv-proxy-players", proxyId, proxy.getAllPlayers().size() + "");
-                } catch (Exception e) {
-                    logger.sendErrorLogs("Error while calculating player count " + e.getMessage());
+            if (!redisController.isAvailable()) {
+                return;
+            }
+            try {
+                int corrected = 0;
+                // dead proxies are left to their cleanup
+                for (String proxyId : redisController.getAllHashFields("rv-proxies")) {
+                    if (housekeeping.isLive(proxyId) && housekeeping.owns(HousekeepingShards.proxyDuty(proxyId))) {
+                        corrected += redisController.reconcileProxyCounters(proxyId);
+                    }
                 }
-            });
-        }).repeat(2, TimeUnit.SECONDS).schedule();
+                long fencingToken = leaderLease.getFencingToken();
+                if (fencingToken != LeaderLeaseService.NO_TOKEN) {
+                    corrected += redisController.reconcileNetworkCounters(fencingToken, System.currentTimeMillis() - heartbeatTimeoutMillis);
+                }
+                if (corrected > 0 && debugMode) {
+                    logger.sendLogs("Corrected " + corrected + " drifted player counters.");
+                }
+            } catch (Exception e) {
+                logger.sendErrorLogs("Error while reconciling player counts " + e.getMessage());
+            }
+        }).repeat(30, TimeUnit.SECONDS).schedule();
     }
-}
\ No newline at end of file
+}
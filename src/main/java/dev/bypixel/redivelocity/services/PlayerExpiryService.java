@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2025.
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ *  along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package dev.bypixel.redivelocity.services;
+
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.scheduler.ScheduledTask;
+import dev.bypixel.redivelocity.RediVelocity;
+import dev.bypixel.redivelocity.RediVelocityLogger;
+import dev.bypixel.redivelocity.jedisWrapper.RedisController;
+import jakarta.inject.Inject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the entries of this proxy's players alive while per-field expiry is enabled.
+ * Entries of a proxy that crashed aren't renewed anymore and expire by themselves, even if no other proxy is left to clean them up.
+ */
+public class PlayerExpiryService {
+
+    private final RedisController redisController;
+    private final String proxyId;
+    private final RediVelocityLogger logger;
+    private final RediVelocity rediVelocity;
+    private final ProxyServer proxy;
+    private final long ttlMillis;
+    private final int renewBatchSize;
+    private final boolean debugMode;
+    private volatile boolean enabled;
+
+    @Inject
+    public PlayerExpiryService(RedisController redisController, String proxyId, RediVelocityLogger logger, RediVelocity rediVelocity, ProxyServer proxy, long ttlMillis, int renewBatchSize, boolean debugMode) {
+        this.redisController = redisController;
+        this.proxyId = proxyId;
+        this.logger = logger;
+        this.rediVelocity = rediVelocity;
+        this.proxy = proxy;
+        this.ttlMillis = Math.max(3000, ttlMillis);
+        this.renewBatchSize = Math.max(1, renewBatchSize);
+        this.debugMode = debugMode;
+    }
+
+    /**
+     * Enables the expiry on the first round that reaches Redis, so a Redis that is down at startup only delays it.
+     */
+    public void start() {
+        // renewing three times per time to live leaves room for a missed round
+        proxy.getScheduler().buildTask(rediVelocity, this::renew).repeat(ttlMillis / 3, TimeUnit.MILLISECONDS).schedule();
+    }
+
+    private void renew(ScheduledTask renewTask) {
+        if (!redisController.isAvailable()) {
+            return;
+        }
+        if (!enabled) {
+            try {
+                if (!redisController.enablePlayerEntryExpiry(ttlMillis)) {
+                    renewTask.cancel();
+                    return;
+                }
+                enabled = true;
+            } catch (Exception e) {
+                logger.sendErrorLogs("Error while enabling the player entry expiry, retrying: " + e.getMessage());
+                return;
+            }
+        }
+        List<CompletableFuture<Void>> renewals = new ArrayList<>();
+        Map<String, String> players = new HashMap<>();
+        int renewedPlayers = 0;
+        for (Player player : proxy.getAllPlayers()) {
+            renewedPlayers++;
+            players.put(player.getUniqueId().toString(), player.getUsername().toLowerCase(Locale.ROOT));
+            if (players.size() >= renewBatchSize) {
+                renewals.add(redisController.renewPlayerEntriesAsync(proxyId, players));
+                players = new HashMap<>();
+            }
+        }
+        // the proxy's member set is renewed with every batch, so one is sent even without players
+        if (!players.isEmpty() || renewals.isEmpty()) {
+            renewals.add(redisController.renewPlayerEntriesAsync(proxyId, players));
+        }
+
+        int renewed = renewedPlayers;
+        CompletableFuture.allOf(renewals.toArray(CompletableFuture<?>[]::new)).whenComplete((ignored, e) -> {
+            if (e != null) {
+                logger.sendErrorLogs("Error while renewing the expiry of the player entries: " + e.getMessage());
+            } else if (debugMode) {
+                logger.sendLogs("Renewed the expiry of the entries of " + renewed + " players.");
+            }
+        });
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2025.
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ *  along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dev.bypixel.redivelocity.services;
+
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.ProxyServer;
+import dev.bypixel.redivelocity.RediVelocityLogger;
+import dev.bypixel.redivelocity.jedisWrapper.RedisController;
+import jakarta.inject.Inject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Brings the state of this proxy in Redis up to date after an outage. Logins, disconnects and server switches
+ * that happened while Redis was unavailable are applied now, and the proxy registers itself again in case the
+ * other proxies already cleaned it up as dead. Their events are only published here if the journal, which already
+ * holds them, is disabled.
+ */
+public class RedisResyncService {
+
+    private final RedisController redisController;
+    private final String proxyId;
+    private final String channel;
+    private final RediVelocityLogger logger;
+    private final ProxyServer proxy;
+
+    @Inject
+    public RedisResyncService(RedisController redisController, String proxyId, String channel, RediVelocityLogger logger, ProxyServer proxy) {
+        this.redisController = redisController;
+        this.proxyId = proxyId;
+        this.channel = channel;
+        this.logger = logger;
+        this.proxy = proxy;
+    }
+
+    public void resync() {
+        try {
+            redisController.setHashField("rv-proxies", proxyId, proxyId);
+            redisController.addToSortedSet(RedisController.RV_PROXY_HEARTBEAT, System.currentTimeMillis(), proxyId);
+
+            Map<String, Player> onlinePlayers = new HashMap<>();
+            proxy.getAllPlayers().forEach(player -> onlinePlayers.put(player.getUniqueId().toString(), player));
+            Set<String> registeredPlayers = redisController.getProxyMembers(proxyId);
+
+            List<CompletableFuture<?>> updates = new ArrayList<>();
+            int joined = 0;
+            int left = 0;
+            for (Map.Entry<String, Player> entry : onlinePlayers.entrySet()) {
+                Player player = entry.getValue();
+                if (!registeredPlayers.contains(entry.getKey())) {
+                    String address = player.getRemoteAddress().getAddress().getHostAddress();
+                    String message = redisController.isJournaling() ? null : redisController.createPostLoginMessage("postLogin", proxyId, player.getUsername(), entry.getKey(), address);
+                    updates.add(redisController.loginPlayerAsync(entry.getKey(), player.getUsername(), proxyId, address, channel, message));
+                    joined++;
+                }
+                player.getCurrentServer().ifPresent(server ->
+                        updates.add(redisController.switchPlayerServerAsync(entry.getKey(), proxyId, server.getServerInfo().getName(), channel, List.of())));
+            }
+            for (String uuid : registeredPlayers) {
+                if (onlinePlayers.containsKey(uuid)) {
+                    continue;
+                }
+                String username = redisController.getHashField("rv-players-name", uuid);
+                String message = redisController.isJournaling() ? null : redisController.createJsonMessage("disconnect", proxyId, username, uuid, null, null);
+                updates.add(redisController.disconnectPlayerAsync(uuid, username != null ? username : "", proxyId, channel, message));
+                left++;
+            }
+
+            CompletableFuture.allOf(updates.toArray(new CompletableFuture<?>[0])).join();
+            logger.sendLogs("Re-synced this proxy with Redis: " + joined + " players joined and " + left + " left during the outage.");
+        } catch (Exception e) {
+            logger.sendErrorLogs("Failed to re-sync this proxy with Redis: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2025.
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ *  along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package dev.bypixel.redivelocity.services;
+
+import com.velocitypowered.api.proxy.ProxyServer;
+import dev.bypixel.redivelocity.RediVelocity;
+import dev.bypixel.redivelocity.RediVelocityLogger;
+import dev.bypixel.redivelocity.config.Config;
+import dev.bypixel.redivelocity.jedisWrapper.RedisController;
+import jakarta.inject.Inject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Merges bursts of server switches of a player. The first switch is sent right away and opens a window, switches
+ * inside the window only replace the pending one, which is sent once the window closes. rv-players-server always
+ * ends up at the latest server, the events of the skipped hops are only published if a consumer needs them.
+ */
+public class ServerSwitchCoalescer {
+
+    /**
+     * A switch waiting for its window to close. The message is built once it's sent, from the server the player
+     * was on before the merged hops.
+     */
+    private record PendingSwitch(String serverName, String previousServer, Function<String, String> message) {
+    }
+
+    private static final class Window {
+        private PendingSwitch pending;
+        private final List<String> skippedMessages = new ArrayList<>();
+    }
+
+    private final RedisController redisController;
+    private final RediVelocityLogger logger;
+    private final RediVelocity rediVelocity;
+    private final ProxyServer proxy;
+    private final String channel;
+    private final long windowMillis;
+    private final boolean publishIntermediateSwitches;
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+    @Inject
+    public ServerSwitchCoalescer(RedisController redisController, RediVelocityLogger logger, RediVelocity rediVelocity, ProxyServer proxy, Config config) {
+        this.redisController = redisController;
+        this.logger = logger;
+        this.rediVelocity = rediVelocity;
+        this.proxy = proxy;
+        this.channel = config.getRedis().getChannel();
+        Config.ServerSwitchCoalescingConfig coalescingConfig = config.getServerSwitchCoalescing();
+        this.windowMillis = coalescingConfig.isEnabled() ? coalescingConfig.getWindowMillis() : 0;
+        this.publishIntermediateSwitches = coalescingConfig.isPublishIntermediateSwitches();
+    }
+
+    /**
+     * Sends the switch right away if no window is open for the player, otherwise keeps it as the pending switch.
+     * The message function gets the server the published event should name as the previous one.
+     */
+    public CompletableFuture<Void> submit(String uuid, String serverName, String previousServer, Function<String, String> message) {
+        if (windowMillis <= 0) {
+            return redisController.switchPlayerServerAsync(uuid, rediVelocity.getProxyId(), serverName, channel, message.apply(previousServer));
+        }
+
+        Window opened = new Window();
+        Window window = windows.compute(uuid, (key, current) -> {
+            if (current == null) {
+                return opened;
+            }
+            PendingSwitch pending = current.pending;
+            if (pending == null) {
+                current.pending = new PendingSwitch(serverName, previousServer, message);
+            } else if (publishIntermediateSwitches) {
+                current.skippedMessages.add(pending.message().apply(pending.previousServer()));
+                current.pending = new PendingSwitch(serverName, previousServer, message);
+            } else {
+                // the event of the merged switch names the server the player came from before the burst
+                current.pending = new PendingSwitch(serverName, pending.previousServer(), message);
+            }
+            return current;
+        });
+
+        if (window != opened) {
+            return CompletableFuture.completedFuture(null);
+        }
+        scheduleClose(uuid, opened);
+        return redisController.switchPlayerServerAsync(uuid, rediVelocity.getProxyId(), serverName, channel, message.apply(previousServer));
+    }
+
+    /**
+     * Sends the pending switch of a player that leaves the proxy, so it is applied before the disconnect.
+     */
+    public void flush(String uuid) {
+        Window window = windows.remove(uuid);
+        if (window != null) {
+            send(uuid, window);
+        }
+    }
+
+    private void scheduleClose(String uuid, Window window) {
+        proxy.getScheduler().buildTask(rediVelocity, () -> close(uuid, window)).delay(windowMillis, TimeUnit.MILLISECONDS).schedule();
+    }
+
+    /**
+     * Sends the pending switch and opens the next window, or forgets the player if nothing happened meanwhile.
+     */
+    private void close(String uuid, Window window) {
+        Window next = new Window();
+        boolean[] closed = {false};
+        windows.computeIfPresent(uuid, (key, current) -> {
+            if (current != window) {
+                // flushed by a disconnect, this window is over already
+                return current;
+            }
+            closed[0] = true;
+            return current.pending != null ? next : null;
+        });
+        if (closed[0] && window.pending != null) {
+            send(uuid, window);
+            scheduleClose(uuid, next);
+        }
+    }
+
+    private void send(String uuid, Window window) {
+        PendingSwitch pending = window.pending;
+        if (pending == null) {
+            return;
+        }
+        List<String> messages = new ArrayList<>(window.skippedMessages);
+        messages.add(pending.message().apply(pending.previousServer()));
+        redisController.switchPlayerServerAsync(uuid, rediVelocity.getProxyId(), pending.serverName(), channel, messages).exceptionally(ex -> {
+            logger.sendErrorLogs("Error while sending server switch Redis message " + ex.getMessage());
+            return null;
+        });
+    }
+}
@@ -0,0 +1,18 @@
+-- RediVelocity: removes a proxy that stopped sending heartbeats
+-- Its players are removed per shard by cleanup_proxy_members beforehand.
+-- KEYS: rv-proxies, rv-proxy-players, rv-proxy-heartbeat (sorted set)
+-- ARGV: dead proxy id, time its last heartbeat had to be sent before
+-- Returns 0 without changing anything if the proxy sent a heartbeat since, e.g. while the caller was paused,
+-- or if another proxy removed it already
+local deadProxy = ARGV[1]
+
+local lastHeartbeat = redis.call('ZSCORE', KEYS[3], deadProxy)
+if lastHeartbeat and tonumber(lastHeartbeat) >= tonumber(ARGV[2]) then
+    return 0
+end
+
+local removed = redis.call('HDEL', KEYS[1], deadProxy)
+redis.call('HDEL', KEYS[2], deadProxy)
+redis.call('ZREM', KEYS[3], deadProxy)
+
+return removed
@@ -0,0 +1,63 @@
+-- RediVelocity: removes the players of a dead proxy from one player shard
+-- Every player of the proxy is unregistered like on a disconnect, the cost only depends on the proxy's player count.
+-- KEYS: rv-proxy-members-<dead proxy id>, rv-players-proxy, rv-players-name, rv-players-name-index, rv-players-server,
+--       rv-players-lastseen (all of the same shard), optionally rv-global-playercount, rv-server-players,
+--       rv-proxy-server-players, rv-proxy-heartbeat (same slot only)
+-- ARGV: dead proxy id, timestamp, time its last heartbeat had to be sent before
+-- Returns the number of removed players and the servers they were counted on as server, count, server, count, ...
+-- or -1 without changing anything if the proxy sent a heartbeat since, e.g. while the caller was paused.
+-- Without the heartbeat key the caller checks it before every shard.
+
+-- server counters are removed once they drop to zero, so servers that are gone don't stay around
+local function decrementServer(key, field, count)
+    if redis.call('HINCRBY', key, field, -count) <= 0 then
+        redis.call('HDEL', key, field)
+    end
+end
+
+local deadProxy = ARGV[1]
+
+if #KEYS >= 10 then
+    local lastHeartbeat = redis.call('ZSCORE', KEYS[10], deadProxy)
+    if lastHeartbeat and tonumber(lastHeartbeat) >= tonumber(ARGV[3]) then
+        return { -1, {} }
+    end
+end
+
+local removedPlayers = 0
+local servers = {}
+local members = redis.call('SMEMBERS', KEYS[1])
+for _, uuid in ipairs(members) do
+    -- a player that already joined another proxy keeps its entries
+    if redis.call('HGET', KEYS[2], uuid) == deadProxy then
+        local name = redis.call('HGET', KEYS[3], uuid)
+        if name and redis.call('HGET', KEYS[4], string.lower(name)) == uuid then
+            redis.call('HDEL', KEYS[4], string.lower(name))
+        end
+        local server = redis.call('HGET', KEYS[5], uuid)
+        if server then
+            servers[server] = (servers[server] or 0) + 1
+        end
+        redis.call('HDEL', KEYS[2], uuid)
+        redis.call('HDEL', KEYS[3], uuid)
+        redis.call('HDEL', KEYS[5], uuid)
+        redis.call('HSET', KEYS[6], uuid, ARGV[2])
+        removedPlayers = removedPlayers + 1
+    end
+end
+redis.call('DEL', KEYS[1])
+
+local serverCounts = {}
+for server, count in pairs(servers) do
+    serverCounts[#serverCounts + 1] = server
+    serverCounts[#serverCounts + 1] = count
+    if #KEYS >= 9 then
+        decrementServer(KEYS[8], server, count)
+        redis.call('HDEL', KEYS[9], deadProxy .. ':' .. server)
+    end
+end
+if #KEYS >= 9 and removedPlayers > 0 then
+    redis.call('DECRBY', KEYS[7], removedPlayers)
+end
+
+return { removedPlayers, serverCounts }
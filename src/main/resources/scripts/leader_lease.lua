@@ -0,0 +1,19 @@
+-- RediVelocity: acquires or renews the leader lease of a proxy
+-- The lease is only taken if no other proxy holds it, like SET NX PX. Every new lease increments the fencing token.
+-- KEYS: rv-proxy-leader, rv-proxy-leader-token
+-- ARGV: proxy id, lease time in milliseconds
+-- Returns 1 and the fencing token if this proxy holds the lease, 0 if another proxy does
+local proxyId = ARGV[1]
+
+local leader = redis.call('GET', KEYS[1])
+if leader == proxyId then
+    redis.call('PEXPIRE', KEYS[1], ARGV[2])
+    local token = redis.call('GET', KEYS[2]) or redis.call('INCR', KEYS[2])
+    return { 1, tostring(token) }
+end
+if leader then
+    return { 0 }
+end
+
+redis.call('SET', KEYS[1], proxyId, 'PX', ARGV[2])
+return { 1, tostring(redis.call('INCR', KEYS[2])) }
@@ -0,0 +1,32 @@
+-- RediVelocity: unregisters a player that left a proxy in one atomic step
+-- The player entries are only removed if the player is still registered on this proxy,
+-- so a quick reconnect through another proxy isn't undone.
+-- KEYS: rv-players-proxy, rv-players-name, rv-players-name-index, rv-proxy-members-<proxy id>, rv-players-server,
+--       rv-players-lastseen (all of the player's shard)
+-- ARGV: uuid, lowercase username, proxy id, timestamp, channel, event message (empty to not publish)
+-- Returns 1 if the player was removed, and the server it was counted on or nil.
+-- The caller moves the player's count with update_player_counters.lua.
+
+local uuid = ARGV[1]
+local proxyId = ARGV[3]
+
+if ARGV[6] ~= '' then
+    redis.call('PUBLISH', ARGV[5], ARGV[6])
+end
+redis.call('SREM', KEYS[4], uuid)
+
+local removed = 0
+local server = false
+if redis.call('HGET', KEYS[1], uuid) == proxyId then
+    server = redis.call('HGET', KEYS[5], uuid)
+    redis.call('HDEL', KEYS[1], uuid)
+    redis.call('HDEL', KEYS[2], uuid)
+    redis.call('HDEL', KEYS[5], uuid)
+    if redis.call('HGET', KEYS[3], ARGV[2]) == uuid then
+        redis.call('HDEL', KEYS[3], ARGV[2])
+    end
+    removed = 1
+end
+redis.call('HSET', KEYS[6], uuid, ARGV[4])
+
+return { removed, server }
@@ -0,0 +1,37 @@
+-- RediVelocity: registers a player that joined a proxy in one atomic step
+-- KEYS: rv-players-proxy, rv-players-name, rv-players-ip, rv-players-name-index, rv-proxy-members-<proxy id>,
+--       rv-players-server (all of the player's shard)
+-- ARGV: uuid, username, lowercase username, proxy id, address, channel, event message (empty to not publish),
+--       time to live of the player entries in milliseconds (0 to keep them until the player leaves)
+-- Returns the proxy the player was registered on before and the server it was counted on there, both or either nil.
+-- The caller moves the player's count with update_player_counters.lua.
+
+local uuid = ARGV[1]
+local proxyId = ARGV[4]
+
+local previousProxy = redis.call('HGET', KEYS[1], uuid)
+local previousServer = false
+if previousProxy and previousProxy ~= proxyId then
+    -- the player moved without a disconnect, its server belonged to the session on the other proxy
+    previousServer = redis.call('HGET', KEYS[6], uuid)
+    if previousServer then
+        redis.call('HDEL', KEYS[6], uuid)
+    end
+end
+redis.call('HSET', KEYS[1], uuid, proxyId)
+redis.call('HSET', KEYS[2], uuid, ARGV[2])
+redis.call('HSET', KEYS[3], uuid, ARGV[5])
+redis.call('HSET', KEYS[4], ARGV[3], uuid)
+redis.call('SADD', KEYS[5], uuid)
+local ttl = tonumber(ARGV[8])
+if ttl > 0 then
+    redis.call('HPEXPIRE', KEYS[1], ttl, 'FIELDS', 1, uuid)
+    redis.call('HPEXPIRE', KEYS[2], ttl, 'FIELDS', 1, uuid)
+    redis.call('HPEXPIRE', KEYS[4], ttl, 'FIELDS', 1, ARGV[3])
+    redis.call('PEXPIRE', KEYS[5], ttl)
+end
+if ARGV[7] ~= '' then
+    redis.call('PUBLISH', ARGV[6], ARGV[7])
+end
+
+return { previousProxy, previousServer }
@@ -0,0 +1,25 @@
+-- RediVelocity: records the server a player switched to and publishes the events in one atomic step
+-- Nothing is changed if the player isn't registered on this proxy (anymore).
+-- KEYS: rv-players-server, rv-players-proxy (both of the player's shard)
+-- ARGV: uuid, proxy id, server, channel, time to live of the entry in milliseconds (0 for none), event messages...
+-- Returns 1 if the switch was recorded, and the server the player was counted on before or nil.
+-- The caller moves the player's count with update_player_counters.lua.
+
+local uuid = ARGV[1]
+local proxyId = ARGV[2]
+local server = ARGV[3]
+
+if redis.call('HGET', KEYS[2], uuid) ~= proxyId then
+    return { 0, false }
+end
+
+local previousServer = redis.call('HGET', KEYS[1], uuid)
+redis.call('HSET', KEYS[1], uuid, server)
+if tonumber(ARGV[5]) > 0 then
+    redis.call('HPEXPIRE', KEYS[1], ARGV[5], 'FIELDS', 1, uuid)
+end
+for i = 6, #ARGV do
+    redis.call('PUBLISH', ARGV[4], ARGV[i])
+end
+
+return { 1, previousServer }
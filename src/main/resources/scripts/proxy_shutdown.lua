@@ -0,0 +1,26 @@
+-- RediVelocity: unregisters a proxy that shuts down and gives up its leader lease
+-- The sharded player keys are cleared by the proxy afterwards if it was the last one.
+-- KEYS: rv-proxies, rv-proxy-players, rv-proxy-heartbeat, rv-proxies-counter, rv-global-playercount, rv-proxy-leader
+-- ARGV: proxy id
+-- Returns the number of proxies that are still registered
+local proxyId = ARGV[1]
+
+redis.call('HDEL', KEYS[1], proxyId)
+redis.call('HDEL', KEYS[2], proxyId)
+
+-- the counters it reconciled move to the other proxies with their next heartbeat
+redis.call('ZREM', KEYS[3], proxyId)
+
+-- another proxy takes the lease on its next renewal instead of waiting for it to expire
+if redis.call('GET', KEYS[6]) == proxyId then
+    redis.call('DEL', KEYS[6])
+end
+
+local remainingProxies = redis.call('HLEN', KEYS[1])
+
+-- the counters and heartbeats of the proxies that keep running stay untouched
+if remainingProxies == 0 then
+    redis.call('DEL', KEYS[4], KEYS[5])
+end
+
+return remainingProxies
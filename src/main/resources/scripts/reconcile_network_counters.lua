@@ -0,0 +1,75 @@
+-- RediVelocity: recomputes the network-wide counters from the per-proxy counters
+-- Counters and pending drift of proxies that are no longer registered are removed. Everything happens in one step.
+-- Proxies whose heartbeat is older than the deadline are not counted, their counters are left to the dead proxy cleanup.
+-- KEYS: rv-proxies, rv-proxy-players, rv-proxy-server-players, rv-global-playercount, rv-server-players, rv-proxy-leader-token, rv-proxy-heartbeat,
+--       rv-proxy-counter-drift
+-- ARGV: fencing token of the leader, heartbeat deadline
+-- Returns the number of corrected counters, or -1 without changing anything if the caller isn't the leader anymore
+if redis.call('GET', KEYS[6]) ~= ARGV[1] then
+    return -1
+end
+
+local deadline = tonumber(ARGV[2])
+-- a proxy without a heartbeat yet is adopted by the leader, so it counts until its heartbeat is missed
+local function isAlive(proxyId)
+    local lastHeartbeat = redis.call('ZSCORE', KEYS[7], proxyId)
+    return not lastHeartbeat or tonumber(lastHeartbeat) >= deadline
+end
+
+local corrected = 0
+
+local totalPlayers = 0
+local proxyCounters = redis.call('HGETALL', KEYS[2])
+for i = 1, #proxyCounters, 2 do
+    if redis.call('HEXISTS', KEYS[1], proxyCounters[i]) == 0 then
+        redis.call('HDEL', KEYS[2], proxyCounters[i])
+        corrected = corrected + 1
+    elseif isAlive(proxyCounters[i]) then
+        totalPlayers = totalPlayers + tonumber(proxyCounters[i + 1])
+    end
+end
+if tonumber(redis.call('GET', KEYS[4]) or '0') ~= totalPlayers then
+    redis.call('SET', KEYS[4], totalPlayers)
+    corrected = corrected + 1
+end
+
+-- fields are proxy:server, proxy ids don't contain a colon
+local serverPlayers = {}
+local proxyServerCounters = redis.call('HGETALL', KEYS[3])
+for i = 1, #proxyServerCounters, 2 do
+    local separator = string.find(proxyServerCounters[i], ':', 1, true)
+    if not separator or redis.call('HEXISTS', KEYS[1], string.sub(proxyServerCounters[i], 1, separator - 1)) == 0 then
+        redis.call('HDEL', KEYS[3], proxyServerCounters[i])
+        corrected = corrected + 1
+    elseif isAlive(string.sub(proxyServerCounters[i], 1, separator - 1)) then
+        local server = string.sub(proxyServerCounters[i], separator + 1)
+        serverPlayers[server] = (serverPlayers[server] or 0) + tonumber(proxyServerCounters[i + 1])
+    end
+end
+
+local serverCounters = redis.call('HGETALL', KEYS[5])
+for i = 1, #serverCounters, 2 do
+    local counted = serverPlayers[serverCounters[i]] or 0
+    if counted <= 0 then
+        redis.call('HDEL', KEYS[5], serverCounters[i])
+        corrected = corrected + 1
+    elseif tonumber(serverCounters[i + 1]) ~= counted then
+        redis.call('HSET', KEYS[5], serverCounters[i], counted)
+        corrected = corrected + 1
+    end
+    serverPlayers[serverCounters[i]] = nil
+end
+for server, counted in pairs(serverPlayers) do
+    if counted > 0 then
+        redis.call('HSET', KEYS[5], server, counted)
+        corrected = corrected + 1
+    end
+end
+
+for _, proxyId in ipairs(redis.call('HKEYS', KEYS[8])) do
+    if redis.call('HEXISTS', KEYS[1], proxyId) == 0 then
+        redis.call('HDEL', KEYS[8], proxyId)
+    end
+end
+
+return corrected
@@ -0,0 +1,68 @@
+-- RediVelocity: sets the counters of one proxy to the values counted from its member set
+-- The counters are only written if they still hold the values read before counting, so a login, switch or
+-- disconnect in between, or a second proxy reconciling the same proxy, can't make them drift.
+-- A counter update that follows a state change has no fixed time to land, so a difference is only corrected once
+-- it was seen unchanged, with the same counters read and counted, at least the confirmation time ago.
+-- KEYS: rv-proxy-players, rv-proxy-server-players, rv-proxy-counter-drift
+-- ARGV: proxy id, timestamp, confirmation time in milliseconds, player counter as read (empty if missing), counted players,
+--       then per server: field in rv-proxy-server-players, counter as read (empty if missing), counted players
+-- Returns the number of corrected counters, or -1 if a counter changed since it was read
+local proxyId = ARGV[1]
+local now = tonumber(ARGV[2])
+
+local function matches(key, field, expected)
+    local current = redis.call('HGET', KEYS[key], field)
+    return (current or '') == expected
+end
+
+local function differs(current, counted)
+    return tonumber(current ~= '' and current or '0') ~= tonumber(counted)
+end
+
+if not matches(1, proxyId, ARGV[4]) then
+    return -1
+end
+local drifted = differs(ARGV[4], ARGV[5])
+for i = 6, #ARGV, 3 do
+    if not matches(2, ARGV[i], ARGV[i + 1]) then
+        return -1
+    end
+    drifted = drifted or differs(ARGV[i + 1], ARGV[i + 2])
+end
+
+if not drifted then
+    redis.call('HDEL', KEYS[3], proxyId)
+    return 0
+end
+
+-- the entry is the time the difference was first seen, followed by what was read and counted
+local observed = table.concat(ARGV, '\n', 4)
+local previous = redis.call('HGET', KEYS[3], proxyId)
+local separator = previous and string.find(previous, '\n', 1, true)
+if not separator or string.sub(previous, separator + 1) ~= observed then
+    redis.call('HSET', KEYS[3], proxyId, now .. '\n' .. observed)
+    return 0
+end
+if now - tonumber(string.sub(previous, 1, separator - 1)) < tonumber(ARGV[3]) then
+    return 0
+end
+redis.call('HDEL', KEYS[3], proxyId)
+
+local function correct(key, field, current, counted)
+    if not differs(current, counted) then
+        return 0
+    end
+    if tonumber(counted) == 0 then
+        redis.call('HDEL', KEYS[key], field)
+    else
+        redis.call('HSET', KEYS[key], field, counted)
+    end
+    return 1
+end
+
+local corrected = correct(1, proxyId, ARGV[4], ARGV[5])
+for i = 6, #ARGV, 3 do
+    corrected = corrected + correct(2, ARGV[i], ARGV[i + 1], ARGV[i + 2])
+end
+
+return corrected
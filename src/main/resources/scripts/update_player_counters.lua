@@ -0,0 +1,44 @@
+-- RediVelocity: moves a player's count from the proxy and server it was counted on to the ones it is on now
+-- Runs after the player's state changed, on a single node as well as in cluster mode where the counters
+-- live in another slot than the player shards. Counters that are already gone are not decremented.
+-- KEYS: rv-proxy-players, rv-global-playercount, rv-server-players, rv-proxy-server-players
+-- ARGV: proxy the player was counted on, server it was counted on there,
+--       proxy the player is on now, server it is on now (each empty for none)
+local fromProxy, fromServer, toProxy, toServer = ARGV[1], ARGV[2], ARGV[3], ARGV[4]
+
+-- server counters are removed once they drop to zero, so servers that are gone don't stay around
+local function decrement(key, field, removeAtZero)
+    if redis.call('HEXISTS', key, field) == 0 then
+        return
+    end
+    if redis.call('HINCRBY', key, field, -1) <= 0 and removeAtZero then
+        redis.call('HDEL', key, field)
+    end
+end
+
+if fromProxy ~= toProxy then
+    if toProxy ~= '' then
+        redis.call('HINCRBY', KEYS[1], toProxy, 1)
+    end
+    if fromProxy == '' then
+        redis.call('INCR', KEYS[2])
+    else
+        decrement(KEYS[1], fromProxy, false)
+        if toProxy == '' then
+            redis.call('DECR', KEYS[2])
+        end
+    end
+end
+
+if fromProxy ~= toProxy or fromServer ~= toServer then
+    if toServer ~= '' then
+        redis.call('HINCRBY', KEYS[3], toServer, 1)
+        redis.call('HINCRBY', KEYS[4], toProxy .. ':' .. toServer, 1)
+    end
+    if fromServer ~= '' then
+        decrement(KEYS[3], fromServer, true)
+        decrement(KEYS[4], fromProxy .. ':' .. fromServer, true)
+    end
+end
+
+return 1